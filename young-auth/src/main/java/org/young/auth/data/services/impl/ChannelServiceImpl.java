@@ -44,7 +44,7 @@ public class ChannelServiceImpl extends BaseDataService implements ChannelServic
      * 渠道号。
      * @return 渠道数据。
      */
-    @Cacheable(value = { CACHE_KEY_CHANNEL_BY_CODE }, key = "#channel")
+    @Cacheable(value = { CACHE_KEY_CHANNEL_BY_CODE }, key = "#channel", sync = true)
     @Override
     public DataChannel loadChannelByCode(@Nonnull final Integer channel) {
         log.debug("loadChannelByCode(channel: {})...", channel);
@@ -57,7 +57,7 @@ public class ChannelServiceImpl extends BaseDataService implements ChannelServic
      * 渠道号。
      * @return Bean名称数组。
      */
-    @Cacheable(value = { CACHE_KEY_AUTH_BEANS_BY_CHANNEL }, key = "#channel")
+    @Cacheable(value = { CACHE_KEY_AUTH_BEANS_BY_CHANNEL }, key = "#channel", sync = true)
     @Override
     public List<String> loadAuthBeansByChannel(@Nonnull final Integer channel) {
         log.debug("loadAuthBeansByChannel(channel: {})...", channel);
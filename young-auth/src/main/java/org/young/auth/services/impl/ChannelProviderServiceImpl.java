@@ -36,7 +36,7 @@ public class ChannelProviderServiceImpl implements ChannelProviderService {
      * 渠道号。
      * @return 渠道数据。
      */
-    @Cacheable(value = { CACHE_KEY_CHANNEL_BY_CODE }, key = "#channelCode")
+    @Cacheable(value = { CACHE_KEY_CHANNEL_BY_CODE }, key = "#channelCode", sync = true)
     @Override
     public Callback<Channel> loadChannelByCode(@Nonnull final Integer channelCode) {
         log.debug("loadChannelByCode(channelCode: {})...", channelCode);
@@ -0,0 +1,54 @@
+package org.young.common.cache;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量缓存注解
+ * <p>
+ *     用于参数为主键集合({@link java.util.Collection})、返回值为 {@code Map<主键, 数据>} 的方法:
+ *     每个主键单独缓存(缓存键为 前缀 + 分隔符 + 主键),调用时一次批量读取全部缓存键,
+ *     只以未命中的主键调用原方法,并将其结果在一次管道中写回缓存。
+ *     数据类型取自方法返回值的泛型参数,须实现 {@link java.io.Serializable};返回值类型须可接收 {@link java.util.LinkedHashMap}。
+ *     原方法未返回的主键以null标记缓存 {@link #nullExpire()} 秒,防止缓存穿透。
+ *     数据变更或新增后以相同的前缀、分隔符及主键调用 {@link org.young.common.util.RedisUtils#clearRedisCacheBatch} 清除缓存。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface BatchCacheable {
+
+    /**
+     * 缓存key的前缀
+     * @return 缓存key的前缀
+     */
+    String prefix();
+
+    /**
+     * 缓存key分隔符(默认 :)
+     * @return 缓存key分隔符
+     */
+    String delimiter() default ":";
+
+    /**
+     * 缓存有效期(默认 30)
+     * @return 缓存有效期
+     */
+    int expire() default 30;
+
+    /**
+     * 缓存有效期单位(默认 分钟)
+     * @return 缓存有效期单位
+     */
+    TimeUnit timeUnit() default TimeUnit.MINUTES;
+
+    /**
+     * 数据不存在时null标记的有效期(秒,默认 60,小于等于0时不缓存null标记)
+     * @return null标记的有效期
+     */
+    int nullExpire() default 60;
+}
@@ -0,0 +1,50 @@
+package org.young.common.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 缓存值封装
+ * <p>
+ *     随缓存值一起保存重新计算耗时与过期时间,用于概率提前刷新(XFetch):
+ *     越接近过期、重新计算越耗时,提前刷新的概率越大,热点缓存在过期前即由单个调用方刷新。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheEnvelope implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * 缓存值
+     */
+    private Object value;
+    /**
+     * 重新计算耗时(ms 毫秒)
+     */
+    private long delta;
+    /**
+     * 过期时间(ms 毫秒,小于等于0时不提前刷新)
+     */
+    private long expiry;
+
+    /**
+     * 是否需要提前刷新
+     * @param beta
+     * 提前刷新系数(越大越提前,小于等于0时不提前刷新)
+     * @return 是否需要提前刷新
+     */
+    public boolean shouldRefresh(final double beta){
+        if(beta <= 0 || expiry <= 0 || delta <= 0){
+            return false;
+        }
+        final double random = 1.0 - ThreadLocalRandom.current().nextDouble();
+        return System.currentTimeMillis() - delta * beta * Math.log(random) >= expiry;
+    }
+}
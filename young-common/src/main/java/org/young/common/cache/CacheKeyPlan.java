@@ -0,0 +1,136 @@
+package org.young.common.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.JavaBeanSerializer;
+import com.alibaba.fastjson.serializer.SerializeConfig;
+import com.alibaba.fastjson.util.TypeUtils;
+import com.google.common.base.Joiner;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 缓存键生成计划
+ * <p>
+ *     按方法预先解析一次缓存注解并确定缓存键前缀:
+ *     配置了缓存名称时为缓存名称(多个以"-"连接),否则为"类名.方法名"(小写);
+ *     生成缓存键时不再反射读取注解,方法参数序列化后取128位哈希,缓存键为"前缀:哈希",
+ *     不同参数对应不同缓存键,且长度固定。
+ * </p>
+ * <p>
+ *     参数按FastJSON序列化(读取getter及public字段),没有可序列化属性的参数类型会序列化为"{}",不同实例的缓存键相同;
+ *     此类参数类型(包括数组元素类型)在解析方法或生成缓存键时直接抛出 {@link IllegalArgumentException},
+ *     须为其提供getter或改用主键等可序列化的参数。集合元素不做检查。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class CacheKeyPlan {
+    /**
+     * 参数哈希函数
+     */
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    /**
+     * 缓存键前缀与参数哈希的分隔符
+     */
+    private static final String DELIMITER = ":";
+    /**
+     * 参数类型-是否没有可序列化的属性
+     */
+    private static final ConcurrentMap<Class<?>, Boolean> OPAQUE_TYPES = new ConcurrentHashMap<>();
+
+    /**
+     * 缓存键前缀
+     */
+    private final String prefix;
+
+    private CacheKeyPlan(@Nonnull final String prefix){
+        this.prefix = prefix;
+    }
+
+    /**
+     * 编译方法的缓存键生成计划
+     * @param targetClass
+     * 目标类
+     * @param method
+     * 方法
+     * @return 缓存键生成计划
+     */
+    public static CacheKeyPlan compile(@Nonnull final Class<?> targetClass, @Nonnull final Method method){
+        log.debug("compile(targetClass: {}, method: {})...", targetClass, method);
+        for(Class<?> type : method.getParameterTypes()){
+            //声明类型为接口或抽象类时在生成缓存键时检查实际类型
+            if(!type.isInterface() && !Modifier.isAbstract(type.getModifiers())){
+                checkType(type);
+            }
+        }
+        String[] cacheNames = null;
+        final Cacheable cacheable = AnnotatedElementUtils.findMergedAnnotation(method, Cacheable.class);
+        if(cacheable != null){
+            cacheNames = cacheable.cacheNames();
+        }else {
+            final CacheEvict cacheEvict = AnnotatedElementUtils.findMergedAnnotation(method, CacheEvict.class);
+            if(cacheEvict != null){
+                cacheNames = cacheEvict.cacheNames();
+            }else {
+                final CachePut cachePut = AnnotatedElementUtils.findMergedAnnotation(method, CachePut.class);
+                if(cachePut != null){
+                    cacheNames = cachePut.cacheNames();
+                }
+            }
+        }
+        if(cacheNames != null && cacheNames.length > 0){
+            return new CacheKeyPlan(Joiner.on("-").join(cacheNames));
+        }
+        return new CacheKeyPlan((targetClass.getSimpleName() + "." + method.getName()).toLowerCase());
+    }
+
+    /**
+     * 生成缓存键
+     * @param args
+     * 方法参数
+     * @return 缓存键
+     */
+    public String getKey(@Nullable final Object... args){
+        if(args == null || args.length == 0){
+            return prefix;
+        }
+        for(Object arg : args){
+            if(arg != null){
+                checkType(arg.getClass());
+            }
+        }
+        return prefix + DELIMITER + HASH.hashBytes(JSON.toJSONBytes(args)).toString();
+    }
+
+    /**
+     * 检查参数类型是否有可序列化的属性
+     * @param type
+     * 参数类型
+     * @throws IllegalArgumentException
+     * 参数类型按JavaBean序列化但没有可序列化的属性
+     */
+    private static void checkType(@Nonnull final Class<?> type){
+        final Class<?> target = type.isArray() ? type.getComponentType() : type;
+        if(target.isPrimitive() || target == Object.class){
+            return;
+        }
+        final boolean opaque = OPAQUE_TYPES.computeIfAbsent(target, t ->
+                SerializeConfig.getGlobalInstance().getObjectWriter(t) instanceof JavaBeanSerializer && TypeUtils.computeGetters(t, null).isEmpty());
+        if(opaque){
+            throw new IllegalArgumentException("cache key param has no serializable property: " + target.getName());
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package org.young.common.cache;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import javax.annotation.Nonnull;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 缓存-配置属性
+ * <p>
+ *     全局默认值可按缓存名称单独覆盖,未配置的项继承全局默认值:
+ * </p>
+ * <pre>
+ * young.cache.ttl=30m
+ * young.cache.max-entries=1000
+ * young.cache.caches.channel_by_code.ttl=2h
+ * young.cache.caches.channel_by_code.max-entries=200
+ * young.cache.caches.channel_by_code.cache-null-values=false
+ * young.cache.caches.channel_by_code.early-refresh=true
+ * </pre>
+ * <p>
+ *     early-refresh(提前刷新)开启后缓存值以 {@link CacheEnvelope} 写入Redis,未升级的节点无法读取;
+ *     滚动部署时需先将所有节点升级到能读取封装值的版本,再开启该配置。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Data
+@ConfigurationProperties(prefix = "young.cache")
+public class CacheProperties {
+    /**
+     * Redis缓存有效期
+     */
+    private Duration ttl = Duration.ofMinutes(30);
+    /**
+     * 进程内缓存的最大数量(每个缓存名称,小于等于0时不使用进程内缓存)
+     */
+    private int maxEntries = 1000;
+    /**
+     * 是否缓存null值
+     */
+    private boolean cacheNullValues = true;
+    /**
+     * 是否提前刷新(XFetch,缓存值以 {@link CacheEnvelope} 写入)
+     */
+    private boolean earlyRefresh = false;
+    /**
+     * 缓存名称-缓存配置
+     */
+    private Map<String, Spec> caches = new LinkedHashMap<>();
+
+    /**
+     * 获取缓存的Redis缓存有效期
+     * @param name
+     * 缓存名称
+     * @return Redis缓存有效期
+     */
+    public Duration getTtl(@Nonnull final String name){
+        final Spec spec = caches.get(name);
+        return spec == null || spec.getTtl() == null ? ttl : spec.getTtl();
+    }
+
+    /**
+     * 获取缓存的进程内缓存最大数量
+     * @param name
+     * 缓存名称
+     * @return 进程内缓存最大数量(小于等于0时不使用进程内缓存)
+     */
+    public int getMaxEntries(@Nonnull final String name){
+        final Spec spec = caches.get(name);
+        return spec == null || spec.getMaxEntries() == null ? maxEntries : spec.getMaxEntries();
+    }
+
+    /**
+     * 获取缓存是否缓存null值
+     * @param name
+     * 缓存名称
+     * @return 是否缓存null值
+     */
+    public boolean isCacheNullValues(@Nonnull final String name){
+        final Spec spec = caches.get(name);
+        return spec == null || spec.getCacheNullValues() == null ? cacheNullValues : spec.getCacheNullValues();
+    }
+
+    /**
+     * 获取缓存是否提前刷新
+     * @param name
+     * 缓存名称
+     * @return 是否提前刷新
+     */
+    public boolean isEarlyRefresh(@Nonnull final String name){
+        final Spec spec = caches.get(name);
+        return spec == null || spec.getEarlyRefresh() == null ? earlyRefresh : spec.getEarlyRefresh();
+    }
+
+    /**
+     * 是否有缓存使用进程内缓存
+     * @return 是否使用进程内缓存
+     */
+    public boolean hasLocalCache(){
+        return maxEntries > 0 || caches.values().stream().anyMatch(spec -> spec.getMaxEntries() != null && spec.getMaxEntries() > 0);
+    }
+
+    /**
+     * 单个缓存的配置(为null的项继承全局默认值)
+     */
+    @Data
+    public static class Spec {
+        /**
+         * Redis缓存有效期
+         */
+        private Duration ttl;
+        /**
+         * 进程内缓存的最大数量
+         */
+        private Integer maxEntries;
+        /**
+         * 是否缓存null值
+         */
+        private Boolean cacheNullValues;
+        /**
+         * 是否提前刷新
+         */
+        private Boolean earlyRefresh;
+    }
+}
@@ -0,0 +1,268 @@
+package org.young.common.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.young.common.protocol.Constants;
+import org.young.common.util.CacheUtils;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点键探测器
+ * <p>
+ *     按采样率抽样记录读取的键,使用 Count-Min Sketch 估算每个键的访问次数,
+ *     估算次数达到阈值的键进入热点键列表(只保留访问次数最多的 topK 个),热点键的值可提升到短期的进程内缓存,
+ *     热点键的读取不再访问Redis,避免单个分片过载。
+ * </p>
+ * <p>
+ *     每个统计窗口结束时全部计数减半(衰减),不再热的键随之移出热点键列表。
+ *     进程内缓存只在本节点写入/删除时失效,其他节点在其有效期内可能读到旧值,有效期应较短。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class HotKeyDetector {
+    /**
+     * 默认探测器(RedisUtils读取路径使用)
+     */
+    private static final HotKeyDetector DEFAULT = new HotKeyDetector(4, 4096, 4, 500, 10, 100, 3);
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    /**
+     * 计数矩阵(depth 行 x width 列)
+     */
+    private final AtomicLongArray counters;
+    private final int depth;
+    private final int width;
+    /**
+     * 采样率(每 sample 次读取记录一次)
+     */
+    private final int sample;
+    /**
+     * 热点阈值(每个统计窗口的估算访问次数)
+     */
+    private final long threshold;
+    /**
+     * 统计窗口(ms 毫秒)
+     */
+    private final long window;
+    private final int topK;
+    /**
+     * 下一次衰减的时间
+     */
+    private final AtomicLong nextDecay;
+    /**
+     * 热点键-估算访问次数
+     */
+    private final Map<String, Long> hotKeys = new HashMap<>();
+    /**
+     * 热点键的进程内缓存
+     */
+    private final Cache<String, Object> local;
+    /**
+     * 热点键集合快照(读取路径无锁判断)
+     */
+    private volatile Map<String, Long> hotSnapshot = new HashMap<>();
+
+    /**
+     * 构造函数
+     * @param depth
+     * 计数矩阵行数(哈希函数个数)
+     * @param width
+     * 计数矩阵列数
+     * @param sample
+     * 采样率(每 sample 次读取记录一次)
+     * @param threshold
+     * 热点阈值(每个统计窗口的估算访问次数)
+     * @param window
+     * 统计窗口(秒)
+     * @param topK
+     * 热点键最大数量
+     * @param localExpire
+     * 热点键进程内缓存的有效期(秒)
+     */
+    public HotKeyDetector(final int depth, final int width, final int sample, final long threshold, final int window, final int topK, final int localExpire){
+        log.debug("HotKeyDetector(depth: {}, width: {}, sample: {}, threshold: {}, window: {}, topK: {}, localExpire: {})...",
+                depth, width, sample, threshold, window, topK, localExpire);
+        this.depth = Math.max(depth, 1);
+        this.width = Math.max(width, 16);
+        this.counters = new AtomicLongArray(this.depth * this.width);
+        this.sample = Math.max(sample, 1);
+        this.threshold = Math.max(threshold, 1);
+        this.window = TimeUnit.SECONDS.toMillis(Math.max(window, 1));
+        this.topK = Math.max(topK, 1);
+        this.nextDecay = new AtomicLong(System.currentTimeMillis() + this.window);
+        this.local = CacheUtils.createCache("redis_hot_keys", this.topK, localExpire, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 获取默认探测器
+     * @return 默认探测器
+     */
+    public static HotKeyDetector getDefault(){
+        return DEFAULT;
+    }
+
+    /**
+     * 记录一次读取(按采样率抽样)
+     * @param key
+     * 键
+     * @return 是否热点键
+     */
+    public boolean record(@Nonnull final String key){
+        decayIfNeeded();
+        if(sample == 1 || ThreadLocalRandom.current().nextInt(sample) == 0){
+            final long hash = HASH.hashString(key, Constants.CHARSET).asLong();
+            final int h1 = (int) hash, h2 = (int) (hash >>> 32);
+            long estimate = Long.MAX_VALUE;
+            for(int i = 0; i < depth; i++){
+                final int col = ((h1 + i * h2) & Integer.MAX_VALUE) % width;
+                estimate = Math.min(estimate, counters.addAndGet(i * width + col, sample));
+            }
+            if(estimate >= threshold){
+                offer(key, estimate);
+            }
+        }
+        return hotSnapshot.containsKey(key);
+    }
+
+    /**
+     * 读取热点键的进程内缓存值
+     * @param key
+     * 键
+     * @return 缓存值(非热点键或未缓存时返回null)
+     */
+    public Object getLocal(@Nonnull final String key){
+        return hotSnapshot.containsKey(key) ? local.getIfPresent(key) : null;
+    }
+
+    /**
+     * 热点键的值提升到进程内缓存(非热点键忽略)
+     * @param key
+     * 键
+     * @param value
+     * 值
+     */
+    public void promote(@Nonnull final String key, final Object value){
+        if(value != null && hotSnapshot.containsKey(key)){
+            local.put(key, value);
+        }
+    }
+
+    /**
+     * 删除进程内缓存值(本节点写入或删除键时调用)
+     * @param key
+     * 键
+     */
+    public void invalidate(@Nonnull final String key){
+        local.invalidate(key);
+    }
+
+    /**
+     * 获取当前热点键列表
+     * @return 热点键列表(按估算访问次数降序)
+     */
+    public List<HotKey> getHotKeys(){
+        final List<HotKey> keys = new ArrayList<>();
+        hotSnapshot.forEach((key, count) -> keys.add(new HotKey(key, count, local.getIfPresent(key) != null)));
+        keys.sort((a, b) -> Long.compare(b.getCount(), a.getCount()));
+        return keys;
+    }
+
+    /**
+     * 更新热点键列表(超过 topK 时移除访问次数最少的键)
+     * @param key
+     * 键
+     * @param estimate
+     * 估算访问次数
+     */
+    private synchronized void offer(@Nonnull final String key, final long estimate){
+        final boolean added = !hotKeys.containsKey(key);
+        hotKeys.put(key, estimate);
+        if(added){
+            if(hotKeys.size() > topK){
+                String min = null;
+                long minCount = Long.MAX_VALUE;
+                for(Map.Entry<String, Long> entry : hotKeys.entrySet()){
+                    if(entry.getValue() < minCount){
+                        min = entry.getKey();
+                        minCount = entry.getValue();
+                    }
+                }
+                hotKeys.remove(min);
+                local.invalidate(min);
+                if(key.equals(min)){
+                    return;
+                }
+            }
+            log.info("offer-发现热点键: {}(估算访问次数: {})", key, estimate);
+        }
+        hotSnapshot = new HashMap<>(hotKeys);
+    }
+
+    /**
+     * 统计窗口结束时计数减半,并移出不再热的键
+     */
+    private void decayIfNeeded(){
+        final long now = System.currentTimeMillis();
+        final long next = nextDecay.get();
+        if(now < next || !nextDecay.compareAndSet(next, now + window)){
+            return;
+        }
+        for(int i = 0, len = counters.length(); i < len; i++){
+            final long value = counters.get(i);
+            if(value > 0){
+                counters.addAndGet(i, -(value >> 1) - (value & 1));
+            }
+        }
+        synchronized (this){
+            hotKeys.replaceAll((k, v) -> v >> 1);
+            hotKeys.entrySet().removeIf(entry -> {
+                if(entry.getValue() < threshold){
+                    local.invalidate(entry.getKey());
+                    return true;
+                }
+                return false;
+            });
+            hotSnapshot = new HashMap<>(hotKeys);
+        }
+    }
+
+    /**
+     * 热点键
+     */
+    @Getter
+    public static class HotKey {
+        /**
+         * 键
+         */
+        private final String key;
+        /**
+         * 估算访问次数(当前统计窗口)
+         */
+        private final long count;
+        /**
+         * 是否已提升到进程内缓存
+         */
+        private final boolean cached;
+
+        HotKey(final String key, final long count, final boolean cached){
+            this.key = key;
+            this.count = count;
+            this.cached = cached;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.young.common.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.lock.RedisLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 防缓存击穿的缓存
+ * <p>
+ *     通过 {@link #get(Object, Callable)} 加载缓存值时(即 {@code @Cacheable(sync = true)}):
+ *     同一节点内同一缓存键只有一个线程重新计算,其余线程等待其结果;
+ *     开启分布式锁时,各节点之间同一缓存键只有获得短期Redis锁的节点重新计算,其余节点等待锁释放后直接读取缓存;
+ *     开启提前刷新(beta大于0且有缓存有效期)时缓存值以 {@link CacheEnvelope} 保存,接近过期时按概率提前刷新(XFetch),
+ *     提前刷新期间其余调用方继续使用旧值;未开启时按原格式写入缓存值,与未升级的节点兼容。
+ * </p>
+ * <p>
+ *     可兼容读取未封装的缓存值。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class ProtectedCache implements Cache {
+    /**
+     * 重新计算锁的前缀
+     */
+    private static final String LOCK_PREFIX = "cache_lock:";
+
+    private final Cache remote;
+    /**
+     * 缓存有效期(ms 毫秒,小于等于0时不提前刷新)
+     */
+    private final long ttl;
+    /**
+     * redisTemplate(为null时不使用分布式锁)
+     */
+    private final RedisTemplate<Object, Object> redisTemplate;
+    /**
+     * 重新计算锁的有效期(秒,小于等于0时不使用分布式锁)
+     */
+    private final int lockExpire;
+    /**
+     * 提前刷新系数
+     */
+    private final double beta;
+    /**
+     * 是否缓存null值
+     */
+    private final boolean allowNullValues;
+    /**
+     * 是否以 {@link CacheEnvelope} 封装写入的缓存值(开启提前刷新时)
+     */
+    private final boolean envelope;
+    /**
+     * 重新计算中的缓存键-计算结果
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
+
+    /**
+     * 构造函数
+     * @param remote
+     * 被保护的缓存
+     * @param ttl
+     * 缓存有效期(为null或0时不提前刷新)
+     * @param redisTemplate
+     * redisTemplate(为null时不使用分布式锁)
+     * @param lockExpire
+     * 重新计算锁的有效期(秒,小于等于0时不使用分布式锁)
+     * @param beta
+     * 提前刷新系数(小于等于0时不提前刷新)
+     * @param allowNullValues
+     * 是否缓存null值(不缓存时加载结果为null则不写入缓存)
+     */
+    public ProtectedCache(@Nonnull final Cache remote, @Nullable final Duration ttl, @Nullable final RedisTemplate<Object, Object> redisTemplate,
+                          final int lockExpire, final double beta, final boolean allowNullValues){
+        this.remote = remote;
+        this.ttl = ttl == null ? 0 : ttl.toMillis();
+        this.redisTemplate = redisTemplate;
+        this.lockExpire = lockExpire;
+        this.beta = beta;
+        this.allowNullValues = allowNullValues;
+        this.envelope = this.beta > 0 && this.ttl > 0;
+    }
+
+    @Override
+    @Nonnull
+    public String getName() {
+        return remote.getName();
+    }
+
+    @Override
+    @Nonnull
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(@Nonnull final Object key) {
+        final CacheEnvelope envelope = read(key);
+        return envelope == null ? null : new SimpleValueWrapper(envelope.getValue());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull final Object key, final Class<T> type) {
+        final CacheEnvelope envelope = read(key);
+        final Object value = envelope == null ? null : envelope.getValue();
+        if(value != null && type != null && !type.isInstance(value)){
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull final Object key, @Nonnull final Callable<T> valueLoader) {
+        final CacheEnvelope current = read(key);
+        if(current != null && !current.shouldRefresh(beta)){
+            return (T) current.getValue();
+        }
+        final String flightKey = String.valueOf(key);
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> leader = flights.putIfAbsent(flightKey, flight);
+        if(leader != null){
+            //本节点正在重新计算: 有旧值时直接使用旧值
+            return current != null ? (T) current.getValue() : (T) await(key, valueLoader, leader);
+        }
+        try {
+            final Object value = load(key, valueLoader, current);
+            flight.complete(value);
+            return (T) value;
+        }catch (Throwable ex){
+            flight.completeExceptionally(ex);
+            throw ex instanceof ValueRetrievalException ? (ValueRetrievalException) ex : new ValueRetrievalException(key, valueLoader, ex);
+        }finally {
+            flights.remove(flightKey, flight);
+        }
+    }
+
+    @Override
+    public void put(@Nonnull final Object key, final Object value) {
+        remote.put(key, wrapStore(value, 0));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull final Object key, final Object value) {
+        final ValueWrapper existing = remote.putIfAbsent(key, wrapStore(value, 0));
+        return existing == null ? null : new SimpleValueWrapper(unwrap(existing.get()).getValue());
+    }
+
+    @Override
+    public void evict(@Nonnull final Object key) {
+        remote.evict(key);
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+    }
+
+    /**
+     * 重新计算缓存值
+     * @param key
+     * 缓存键
+     * @param valueLoader
+     * 缓存值加载器
+     * @param current
+     * 当前缓存值(提前刷新时不为null)
+     * @return 缓存值
+     * @throws Exception
+     * 加载异常
+     */
+    private Object load(@Nonnull final Object key, @Nonnull final Callable<?> valueLoader, @Nullable final CacheEnvelope current) throws Exception {
+        RedisLock lock = null;
+        if(redisTemplate != null && lockExpire > 0){
+            //提前刷新时不等待,缓存缺失时等待其他节点计算完成
+            final long wait = current != null ? 0 : TimeUnit.SECONDS.toMillis(lockExpire);
+            lock = new RedisLock(redisTemplate, LOCK_PREFIX + getName() + ":" + key, lockExpire, wait);
+            if(!lock.tryLock()){
+                lock = null;
+                if(current != null){
+                    return current.getValue();
+                }
+                log.warn("load(name: {}, key: {})-等待其他节点重新计算超时,自行计算!", getName(), key);
+            }else if(current == null){
+                //获得锁时其他节点可能已计算完成
+                final CacheEnvelope fresh = read(key);
+                if(fresh != null){
+                    lock.unlock();
+                    return fresh.getValue();
+                }
+            }
+        }
+        try {
+            final long start = System.currentTimeMillis();
+            final Object value = valueLoader.call();
+            if(value != null || allowNullValues){
+                remote.put(key, wrap(value, System.currentTimeMillis() - start));
+            }
+            return value;
+        }finally {
+            if(lock != null){
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 等待本节点的计算结果
+     * @param key
+     * 缓存键
+     * @param valueLoader
+     * 缓存值加载器
+     * @param leader
+     * 计算结果
+     * @return 缓存值
+     */
+    private static Object await(@Nonnull final Object key, @Nonnull final Callable<?> valueLoader, @Nonnull final CompletableFuture<Object> leader){
+        try {
+            return leader.get();
+        }catch (ExecutionException ex){
+            throw new ValueRetrievalException(key, valueLoader, ex.getCause());
+        }catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, ex);
+        }
+    }
+
+    /**
+     * 读取缓存值
+     * @param key
+     * 缓存键
+     * @return 缓存值封装(不存在时返回null)
+     */
+    private CacheEnvelope read(@Nonnull final Object key){
+        final ValueWrapper wrapper = remote.get(key);
+        return wrapper == null ? null : unwrap(wrapper.get());
+    }
+
+    /**
+     * 封装写入的缓存值(不缓存null值时null原样交给Redis缓存处理)
+     * @param value
+     * 缓存值
+     * @param delta
+     * 重新计算耗时(ms 毫秒)
+     * @return 写入的缓存值
+     */
+    private Object wrapStore(final Object value, final long delta){
+        return value == null && !allowNullValues ? null : wrap(value, delta);
+    }
+
+    private Object wrap(final Object value, final long delta){
+        if(!envelope){
+            return value;
+        }
+        return new CacheEnvelope(value, delta, System.currentTimeMillis() + ttl);
+    }
+
+    private static CacheEnvelope unwrap(final Object value){
+        if(value instanceof CacheEnvelope){
+            return (CacheEnvelope) value;
+        }
+        //未封装的缓存值
+        return new CacheEnvelope(value, 0, 0);
+    }
+}
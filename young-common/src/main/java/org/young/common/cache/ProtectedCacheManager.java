@@ -0,0 +1,81 @@
+package org.young.common.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 防缓存击穿的缓存管理器(将每个缓存封装为 {@link ProtectedCache})
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class ProtectedCacheManager implements CacheManager {
+    /**
+     * 缓存名称-缓存
+     */
+    private final ConcurrentMap<String, ProtectedCache> caches = new ConcurrentHashMap<>();
+
+    private final CacheManager remoteManager;
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final int lockExpire;
+    private final double beta;
+    private final CacheProperties cacheProperties;
+
+    /**
+     * 构造函数
+     * @param remoteManager
+     * Redis缓存管理器(已初始化)
+     * @param redisTemplate
+     * redisTemplate(为null时不使用分布式锁)
+     * @param lockExpire
+     * 重新计算锁的有效期(秒,小于等于0时不使用分布式锁)
+     * @param beta
+     * 提前刷新系数(小于等于0时不提前刷新)
+     * @param cacheProperties
+     * 缓存配置(只有开启提前刷新的缓存使用提前刷新系数)
+     */
+    public ProtectedCacheManager(@Nonnull final CacheManager remoteManager, @Nullable final RedisTemplate<Object, Object> redisTemplate, final int lockExpire, final double beta,
+                                 @Nonnull final CacheProperties cacheProperties){
+        log.debug("ProtectedCacheManager(lockExpire: {}, beta: {})...", lockExpire, beta);
+        this.remoteManager = remoteManager;
+        this.redisTemplate = redisTemplate;
+        this.lockExpire = lockExpire;
+        this.beta = beta;
+        this.cacheProperties = cacheProperties;
+    }
+
+    @Override
+    public Cache getCache(@Nonnull final String name) {
+        final ProtectedCache cache = caches.get(name);
+        if(cache != null){
+            return cache;
+        }
+        final Cache remote = remoteManager.getCache(name);
+        if(remote == null){
+            return null;
+        }
+        //未开启提前刷新的缓存按原格式写入缓存值
+        final double cacheBeta = cacheProperties.isEarlyRefresh(name) ? beta : 0;
+        if(!(remote instanceof RedisCache)){
+            return caches.computeIfAbsent(name, k -> new ProtectedCache(remote, null, redisTemplate, lockExpire, cacheBeta, true));
+        }
+        final RedisCache redisCache = (RedisCache) remote;
+        return caches.computeIfAbsent(name, k -> new ProtectedCache(remote, redisCache.getCacheConfiguration().getTtl(),
+                redisTemplate, lockExpire, cacheBeta, redisCache.isAllowNullValues()));
+    }
+
+    @Override
+    @Nonnull
+    public Collection<String> getCacheNames() {
+        return remoteManager.getCacheNames();
+    }
+}
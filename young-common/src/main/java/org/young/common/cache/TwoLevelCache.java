@@ -0,0 +1,164 @@
+package org.young.common.cache;
+
+import com.google.common.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.Callable;
+
+/**
+ * 二级缓存
+ * <p>
+ *     一级为进程内的有界缓存(Guava),二级为Redis缓存;读取时先查一级缓存,未命中再查二级缓存并回填一级缓存。
+ *     写入、删除、清空时同时更新两级缓存,并通过 {@link TwoLevelCacheManager} 广播给其他节点删除其一级缓存。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class TwoLevelCache implements org.springframework.cache.Cache {
+    private final String name;
+    /**
+     * 一级缓存(缓存键字符串-缓存值)
+     */
+    private final Cache<String, ValueWrapper> local;
+    /**
+     * 二级缓存
+     */
+    private final org.springframework.cache.Cache remote;
+    private final TwoLevelCacheManager manager;
+    /**
+     * 是否缓存null值
+     */
+    private final boolean allowNullValues;
+
+    /**
+     * 构造函数
+     * @param name
+     * 缓存名称
+     * @param local
+     * 一级缓存
+     * @param remote
+     * 二级缓存
+     * @param manager
+     * 缓存管理器(广播失效通知)
+     * @param allowNullValues
+     * 是否缓存null值
+     */
+    TwoLevelCache(@Nonnull final String name, @Nonnull final Cache<String, ValueWrapper> local,
+                  @Nonnull final org.springframework.cache.Cache remote, @Nonnull final TwoLevelCacheManager manager, final boolean allowNullValues){
+        this.name = name;
+        this.local = local;
+        this.remote = remote;
+        this.manager = manager;
+        this.allowNullValues = allowNullValues;
+    }
+
+    @Override
+    @Nonnull
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    @Nonnull
+    public Object getNativeCache() {
+        return remote.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(@Nonnull final Object key) {
+        final String localKey = localKey(key);
+        ValueWrapper wrapper = local.getIfPresent(localKey);
+        if(wrapper != null){
+            return wrapper;
+        }
+        wrapper = remote.get(key);
+        if(wrapper != null){
+            local.put(localKey, new SimpleValueWrapper(wrapper.get()));
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull final Object key, final Class<T> type) {
+        final ValueWrapper wrapper = get(key);
+        final Object value = wrapper == null ? null : wrapper.get();
+        if(value != null && type != null && !type.isInstance(value)){
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(@Nonnull final Object key, @Nonnull final Callable<T> valueLoader) {
+        final String localKey = localKey(key);
+        final ValueWrapper wrapper = local.getIfPresent(localKey);
+        if(wrapper != null){
+            return (T) wrapper.get();
+        }
+        final T value = remote.get(key, valueLoader);
+        if(value != null || allowNullValues){
+            local.put(localKey, new SimpleValueWrapper(value));
+        }
+        return value;
+    }
+
+    @Override
+    public void put(@Nonnull final Object key, final Object value) {
+        remote.put(key, value);
+        local.put(localKey(key), new SimpleValueWrapper(value));
+        manager.publish(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(@Nonnull final Object key, final Object value) {
+        final ValueWrapper existing = remote.putIfAbsent(key, value);
+        local.invalidate(localKey(key));
+        if(existing == null){
+            manager.publish(name, localKey(key));
+        }
+        return existing;
+    }
+
+    @Override
+    public void evict(@Nonnull final Object key) {
+        remote.evict(key);
+        local.invalidate(localKey(key));
+        manager.publish(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        remote.clear();
+        local.invalidateAll();
+        manager.publish(name, null);
+    }
+
+    /**
+     * 删除一级缓存(收到其他节点的失效通知时调用)
+     * @param localKey
+     * 缓存键字符串(为null时清空)
+     */
+    void evictLocal(final String localKey){
+        log.debug("evictLocal(name: {}, key: {})...", name, localKey);
+        if(localKey == null){
+            local.invalidateAll();
+        }else {
+            local.invalidate(localKey);
+        }
+    }
+
+    /**
+     * 一级缓存键(与Redis缓存一致按字符串区分缓存键)
+     * @param key
+     * 缓存键
+     * @return 缓存键字符串
+     */
+    private static String localKey(@Nonnull final Object key){
+        return String.valueOf(key);
+    }
+}
@@ -0,0 +1,158 @@
+package org.young.common.cache;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.young.common.protocol.Constants;
+import org.young.common.util.CacheUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 二级缓存管理器
+ * <p>
+ *     为每个缓存名称在Redis缓存前增加一个有界的进程内缓存(见 {@link TwoLevelCache});
+ *     缓存写入、删除、清空时向 {@link #CHANNEL} 广播失效通知,其他节点收到后删除其进程内缓存,忽略本节点发出的通知。
+ *     通知可能丢失(如订阅连接重连),进程内缓存的有效期决定了最长的不一致时间。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, MessageListener, DisposableBean {
+    /**
+     * 缓存失效通知频道
+     */
+    public static final String CHANNEL = "young_cache_evict";
+
+    /**
+     * 本节点标识
+     */
+    private final String node = UUID.randomUUID().toString();
+    /**
+     * 缓存名称-二级缓存
+     */
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+    private final CacheManager remoteManager;
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisMessageListenerContainer container;
+    /**
+     * 缓存配置(进程内缓存的最大数量、是否缓存null值)
+     */
+    private final CacheProperties properties;
+    /**
+     * 进程内缓存的有效期(秒)
+     */
+    private final int expire;
+
+    /**
+     * 构造函数
+     * @param remoteManager
+     * Redis缓存管理器(已初始化)
+     * @param connectionFactory
+     * Redis连接工厂
+     * @param properties
+     * 缓存配置(按缓存名称确定进程内缓存的最大数量,小于等于0的缓存不使用进程内缓存)
+     * @param expire
+     * 进程内缓存的有效期(秒)
+     */
+    public TwoLevelCacheManager(@Nonnull final CacheManager remoteManager, @Nonnull final RedisConnectionFactory connectionFactory, @Nonnull final CacheProperties properties, final int expire){
+        log.debug("TwoLevelCacheManager(properties: {}, expire: {})...", properties, expire);
+        this.remoteManager = remoteManager;
+        this.connectionFactory = connectionFactory;
+        this.properties = properties;
+        this.expire = expire;
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.addMessageListener(this, new ChannelTopic(CHANNEL));
+        this.container.afterPropertiesSet();
+        this.container.start();
+    }
+
+    @Override
+    public Cache getCache(@Nonnull final String name) {
+        final TwoLevelCache cache = caches.get(name);
+        if(cache != null){
+            return cache;
+        }
+        final Cache remote = remoteManager.getCache(name);
+        if(remote == null){
+            return null;
+        }
+        final int maxSize = properties.getMaxEntries(name);
+        if(maxSize <= 0){
+            //该缓存不使用进程内缓存
+            return remote;
+        }
+        return caches.computeIfAbsent(name, k -> new TwoLevelCache(k, CacheUtils.createCache("cache:" + k, maxSize, expire, TimeUnit.SECONDS), remote, this,
+                properties.isCacheNullValues(k)));
+    }
+
+    @Override
+    @Nonnull
+    public Collection<String> getCacheNames() {
+        return remoteManager.getCacheNames();
+    }
+
+    /**
+     * 广播缓存失效通知
+     * @param name
+     * 缓存名称
+     * @param key
+     * 缓存键字符串(为null时表示清空)
+     */
+    void publish(@Nonnull final String name, @Nullable final String key){
+        final JSONObject msg = new JSONObject();
+        msg.put("node", node);
+        msg.put("name", name);
+        msg.put("key", key);
+        RedisConnection connection = null;
+        try {
+            connection = connectionFactory.getConnection();
+            connection.publish(CHANNEL.getBytes(Constants.CHARSET), msg.toJSONString().getBytes(Constants.CHARSET));
+        }catch (Throwable ex){
+            log.warn("publish(name: {}, key: {})-广播缓存失效通知失败: {}", name, key, ex.getMessage());
+        }finally {
+            if(connection != null){
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(@Nonnull final Message message, @Nullable final byte[] pattern) {
+        try {
+            final JSONObject msg = JSON.parseObject(new String(message.getBody(), Constants.CHARSET));
+            if(msg == null || node.equals(msg.getString("node"))){
+                return;
+            }
+            final TwoLevelCache cache = caches.get(msg.getString("name"));
+            if(cache != null){
+                cache.evictLocal(msg.getString("key"));
+            }
+        }catch (Throwable ex){
+            log.warn("onMessage-解析缓存失效通知失败: {}", ex.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        container.destroy();
+    }
+}
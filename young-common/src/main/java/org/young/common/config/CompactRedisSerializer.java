@@ -0,0 +1,336 @@
+package org.young.common.config;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.parser.ParserConfig;
+import com.alibaba.fastjson.serializer.SerializerFeature;
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.google.common.collect.ImmutableSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.young.common.protocol.Constants;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis紧凑二进制序列化
+ * <p>
+ *     格式: 魔数(1字节) + 版本(1字节) + 标志(1字节) + 类型(1字节) + 数据。
+ *     字符串、数值、布尔、字节数组直接按二进制存储;普通对象只在头部记录一次类名,数据为JSON(仅非具体类型的字段带有 @type);
+ *     集合与Map的元素类型不固定,仍使用带类名的JSON。
+ *     数据超过压缩阈值且压缩后更小时使用Deflate压缩(标志位 {@link #FLAG_DEFLATE})。
+ * </p>
+ * <p>
+ *     读取时首字节不是魔数(如已有的FastJSON文本)则按 {@link GenericFastJsonRedisSerializer} 的格式解析,可直接替换现有序列化。
+ * </p>
+ * <p>
+ *     类名来自Redis中的数据,不能信任: 只加载允许的类型(常用JDK值类型及允许的包前缀,默认 {@link #DEFAULT_ACCEPTS}),
+ *     加载时不初始化类;FastJSON不开启autoType,带有 @type 的字段同样只接受允许的包前缀。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+    /**
+     * 魔数(不可能是JSON文本的首字节)
+     */
+    private static final byte MAGIC = (byte) 0xC5;
+    /**
+     * 格式版本
+     */
+    private static final byte VERSION = 1;
+    /**
+     * 头部长度
+     */
+    private static final int HEADER = 4;
+    /**
+     * 标志位: Deflate压缩
+     */
+    private static final byte FLAG_DEFLATE = 0x01;
+    /**
+     * 默认压缩阈值(字节)
+     */
+    public static final int DEFAULT_THRESHOLD = 1024;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_DOUBLE = 4;
+    private static final byte TYPE_BOOLEAN = 5;
+    private static final byte TYPE_BYTES = 6;
+    private static final byte TYPE_OBJECT = 7;
+    private static final byte TYPE_TYPED_JSON = 8;
+
+    /**
+     * 默认允许反序列化的包前缀
+     */
+    public static final String[] DEFAULT_ACCEPTS = { "org.young." };
+
+    /**
+     * 允许反序列化的JDK值类型
+     */
+    private static final Set<String> JDK_TYPES = ImmutableSet.of(
+            "java.lang.String", "java.lang.Byte", "java.lang.Short", "java.lang.Float", "java.lang.Character",
+            "java.math.BigDecimal", "java.math.BigInteger", "java.util.Date", "java.util.UUID",
+            "java.sql.Date", "java.sql.Timestamp", "java.time.LocalDate", "java.time.LocalDateTime", "java.time.Instant"
+    );
+
+    /**
+     * 类名-类型
+     */
+    private static final ConcurrentMap<String, Class<?>> CLASSES = new ConcurrentHashMap<>();
+
+    /**
+     * 集合与Map的序列化(带类名的JSON)
+     */
+    private final GenericFastJsonRedisSerializer fallback = new GenericFastJsonRedisSerializer();
+    /**
+     * 压缩阈值(字节,小于等于0时不压缩)
+     */
+    private final int threshold;
+    /**
+     * 允许反序列化的包前缀
+     */
+    private final String[] accepts;
+    /**
+     * 解析配置(不开启autoType,@type 只接受允许的包前缀)
+     */
+    private final ParserConfig parserConfig = new ParserConfig();
+
+    /**
+     * 构造函数(使用默认压缩阈值)
+     */
+    public CompactRedisSerializer(){
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * 构造函数(允许默认的包前缀)
+     * @param threshold
+     * 压缩阈值(字节,小于等于0时不压缩)
+     */
+    public CompactRedisSerializer(final int threshold){
+        this(threshold, DEFAULT_ACCEPTS);
+    }
+
+    /**
+     * 构造函数
+     * @param threshold
+     * 压缩阈值(字节,小于等于0时不压缩)
+     * @param accepts
+     * 允许反序列化的包前缀(如 "org.young.")
+     */
+    public CompactRedisSerializer(final int threshold, @Nonnull final String... accepts){
+        this.threshold = threshold;
+        this.accepts = accepts.clone();
+        this.parserConfig.setAutoTypeSupport(false);
+        for(String accept : accepts){
+            this.parserConfig.addAccept(accept);
+        }
+    }
+
+    @Override
+    public byte[] serialize(final Object o) throws SerializationException {
+        if(o == null){
+            return new byte[0];
+        }
+        try {
+            final byte type;
+            final byte[] data;
+            if(o instanceof String){
+                type = TYPE_STRING;
+                data = ((String) o).getBytes(Constants.CHARSET);
+            }else if(o instanceof Long){
+                type = TYPE_LONG;
+                data = ByteBuffer.allocate(8).putLong((Long) o).array();
+            }else if(o instanceof Integer){
+                type = TYPE_INTEGER;
+                data = ByteBuffer.allocate(4).putInt((Integer) o).array();
+            }else if(o instanceof Double){
+                type = TYPE_DOUBLE;
+                data = ByteBuffer.allocate(8).putDouble((Double) o).array();
+            }else if(o instanceof Boolean){
+                type = TYPE_BOOLEAN;
+                data = new byte[]{ (byte)((Boolean) o ? 1 : 0) };
+            }else if(o instanceof byte[]){
+                type = TYPE_BYTES;
+                data = (byte[]) o;
+            }else if(o instanceof Collection || o instanceof Map || o.getClass().isArray()){
+                type = TYPE_TYPED_JSON;
+                data = fallback.serialize(o);
+            }else {
+                type = TYPE_OBJECT;
+                final byte[] name = o.getClass().getName().getBytes(Constants.CHARSET);
+                final byte[] json = JSON.toJSONBytes(o, SerializerFeature.WriteClassName, SerializerFeature.NotWriteRootClassName);
+                data = ByteBuffer.allocate(2 + name.length + json.length)
+                        .putShort((short) name.length).put(name).put(json).array();
+            }
+            return encode(type, data);
+        }catch (Throwable ex){
+            throw new SerializationException("Could not serialize: " + ex.getMessage(), ex);
+        }
+    }
+
+    @Override
+    public Object deserialize(final byte[] bytes) throws SerializationException {
+        if(bytes == null || bytes.length == 0){
+            return null;
+        }
+        try {
+            if(bytes.length < HEADER || bytes[0] != MAGIC || bytes[1] != VERSION){
+                //兼容已有的JSON数据
+                return parseTyped(bytes);
+            }
+            final byte[] data = (bytes[2] & FLAG_DEFLATE) != 0 ? inflate(bytes) : copy(bytes);
+            final ByteBuffer buf = ByteBuffer.wrap(data);
+            switch (bytes[3]){
+                case TYPE_STRING:
+                    return new String(data, Constants.CHARSET);
+                case TYPE_LONG:
+                    return buf.getLong();
+                case TYPE_INTEGER:
+                    return buf.getInt();
+                case TYPE_DOUBLE:
+                    return buf.getDouble();
+                case TYPE_BOOLEAN:
+                    return data.length > 0 && data[0] != 0;
+                case TYPE_BYTES:
+                    return data;
+                case TYPE_TYPED_JSON:
+                    return parseTyped(data);
+                case TYPE_OBJECT: {
+                    final int len = buf.getShort() & 0xFFFF;
+                    final String name = new String(data, 2, len, Constants.CHARSET);
+                    if(!isAccepted(name)){
+                        throw new SerializationException("Class not accepted: " + name);
+                    }
+                    final Class<?> clazz = CLASSES.computeIfAbsent(name, CompactRedisSerializer::loadClass);
+                    return JSON.parseObject(new String(data, 2 + len, data.length - 2 - len, Constants.CHARSET), clazz, parserConfig);
+                }
+                default:
+                    throw new SerializationException("Unknown type: " + bytes[3]);
+            }
+        }catch (SerializationException ex){
+            throw ex;
+        }catch (Throwable ex){
+            throw new SerializationException("Could not deserialize: " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 解析带类名的JSON(与 {@link GenericFastJsonRedisSerializer} 格式相同,@type 只接受允许的包前缀)
+     * @param data
+     * JSON数据
+     * @return 解析结果
+     */
+    private Object parseTyped(final byte[] data){
+        return JSON.parseObject(new String(data, Constants.CHARSET), Object.class, parserConfig);
+    }
+
+    /**
+     * 类名是否允许反序列化
+     * @param name
+     * 类名
+     * @return 是否允许
+     */
+    boolean isAccepted(@Nonnull final String name){
+        if(JDK_TYPES.contains(name)){
+            return true;
+        }
+        for(String accept : accepts){
+            if(name.startsWith(accept)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写入头部并按阈值压缩
+     * @param type
+     * 类型
+     * @param data
+     * 数据
+     * @return 序列化结果
+     */
+    private byte[] encode(final byte type, final byte[] data){
+        byte flags = 0;
+        byte[] body = data;
+        if(threshold > 0 && data.length >= threshold){
+            final byte[] compressed = deflate(data);
+            if(compressed.length < data.length){
+                flags |= FLAG_DEFLATE;
+                body = compressed;
+            }
+        }
+        final byte[] ret = new byte[HEADER + body.length];
+        ret[0] = MAGIC;
+        ret[1] = VERSION;
+        ret[2] = flags;
+        ret[3] = type;
+        System.arraycopy(body, 0, ret, HEADER, body.length);
+        return ret;
+    }
+
+    private static byte[] copy(final byte[] bytes){
+        final byte[] ret = new byte[bytes.length - HEADER];
+        System.arraycopy(bytes, HEADER, ret, 0, ret.length);
+        return ret;
+    }
+
+    private static byte[] deflate(final byte[] data){
+        final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2);
+            final byte[] buf = new byte[4096];
+            while (!deflater.finished()){
+                out.write(buf, 0, deflater.deflate(buf));
+            }
+            return out.toByteArray();
+        }finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(final byte[] bytes) throws DataFormatException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, HEADER, bytes.length - HEADER);
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length * 3);
+            final byte[] buf = new byte[4096];
+            while (!inflater.finished()){
+                final int n = inflater.inflate(buf);
+                if(n == 0 && (inflater.needsInput() || inflater.needsDictionary())){
+                    throw new DataFormatException("truncated deflate data");
+                }
+                out.write(buf, 0, n);
+            }
+            return out.toByteArray();
+        }finally {
+            inflater.end();
+        }
+    }
+
+    private static Class<?> loadClass(final String name){
+        try {
+            final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+            //只加载不初始化,避免执行类的静态代码
+            return Class.forName(name, false, loader != null ? loader : CompactRedisSerializer.class.getClassLoader());
+        }catch (ClassNotFoundException ex){
+            throw new SerializationException("Class not found: " + name, ex);
+        }
+    }
+}
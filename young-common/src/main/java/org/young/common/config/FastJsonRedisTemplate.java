@@ -2,13 +2,19 @@ package org.young.common.config;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.SerializationException;
+import org.young.common.metrics.InstrumentedRedisSerializer;
+import org.young.common.metrics.RedisMetrics;
 import org.young.common.protocol.Constants;
 
 /**
  * Redis 使用fast json存储数据模板
+ * <p>
+ *     连接与值序列化均经过统计(见 {@link RedisMetrics}): 命令耗时、值字节数、序列化耗时以及大值。
+ * </p>
  * @author jeasonyoung
  */
 public class FastJsonRedisTemplate extends RedisTemplate<Object, Object> {
@@ -17,16 +23,31 @@ public class FastJsonRedisTemplate extends RedisTemplate<Object, Object> {
      * 构造函数。
      */
     public FastJsonRedisTemplate(){
+        this(new GenericFastJsonRedisSerializer());
+    }
+
+    /**
+     * 构造函数。
+     * @param serializer
+     * 值序列化(如 {@link CompactRedisSerializer})。
+     */
+    public FastJsonRedisTemplate(final RedisSerializer<Object> serializer){
         final RedisKeySerializer keySerializer = new RedisKeySerializer();
-        final GenericFastJsonRedisSerializer fastJsonRedisSerializer = new GenericFastJsonRedisSerializer();
+        //统计值字节数与序列化耗时
+        final RedisSerializer<Object> valueSerializer = serializer instanceof InstrumentedRedisSerializer ? serializer : new InstrumentedRedisSerializer<>(serializer);
         //
-        setDefaultSerializer(fastJsonRedisSerializer);
+        setDefaultSerializer(valueSerializer);
         //
         setKeySerializer(keySerializer);
-        setValueSerializer(fastJsonRedisSerializer);
+        setValueSerializer(valueSerializer);
         //
         setHashKeySerializer(keySerializer);
-        setHashValueSerializer(fastJsonRedisSerializer);
+        setHashValueSerializer(valueSerializer);
+    }
+
+    @Override
+    protected RedisConnection preProcessConnection(final RedisConnection connection, final boolean existingConnection) {
+        return RedisMetrics.instrument(super.preProcessConnection(connection, existingConnection));
     }
 
 
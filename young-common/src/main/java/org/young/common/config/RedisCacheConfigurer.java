@@ -1,36 +1,49 @@
 package org.young.common.config;
 
 import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
-import com.google.common.base.Joiner;
-import com.google.common.base.Strings;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.cache.annotation.CachingConfigurerSupport;
 import org.springframework.cache.interceptor.KeyGenerator;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.MethodClassKey;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.young.common.cache.CacheKeyPlan;
+import org.young.common.cache.CacheProperties;
+import org.young.common.cache.ProtectedCacheManager;
+import org.young.common.cache.TwoLevelCacheManager;
+import org.young.common.lock.RedisLockNotifier;
+import org.young.common.metrics.InstrumentedRedisSerializer;
+import org.young.common.metrics.RedisMetrics;
 
-import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
-import java.lang.reflect.Method;
 import java.time.Duration;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Cache 数据缓存存储到 Redis中配置
+ * <p>
+ *     各缓存的有效期、进程内缓存数量、是否缓存null值由 {@link CacheProperties}(young.cache.*)配置。
+ * </p>
  * @author jeasonyoung
  */
 @Slf4j
+@EnableConfigurationProperties(CacheProperties.class)
 public class RedisCacheConfigurer extends CachingConfigurerSupport {
+    /**
+     * 方法-缓存键生成计划
+     */
+    private final ConcurrentMap<MethodClassKey, CacheKeyPlan> keyPlans = new ConcurrentHashMap<>();
 
     @Bean
     @Primary
@@ -38,26 +51,24 @@ public class RedisCacheConfigurer extends CachingConfigurerSupport {
     public KeyGenerator keyGenerator() {
         log.debug("keyGenerator...");
         return (target, method, params) -> {
-            //Cacheable
-            final Cacheable cacheable = method.getAnnotation(Cacheable.class);
-            if(cacheable != null){
-                return createKey(cacheable.cacheNames(), target, method, params);
-            }
-            //CacheEvict
-            final CacheEvict cacheEvict = method.getAnnotation(CacheEvict.class);
-            if(cacheEvict != null){
-                return createKey(cacheEvict.cacheNames(), target, method, params);
-            }
-            //CachePut
-            final CachePut cachePut = method.getAnnotation(CachePut.class);
-            if(cachePut != null){
-                return createKey(cachePut.cacheNames(), target, method, params);
-            }
-            //创建默认缓存键
-            return createDefaultKey(target, method, params);
+            final Class<?> targetClass = target.getClass();
+            return keyPlans.computeIfAbsent(new MethodClassKey(method, targetClass), k -> CacheKeyPlan.compile(targetClass, method))
+                    .getKey(params);
         };
     }
 
+    /**
+     * 创建Redis值序列化(Redis模板与缓存管理器共用)
+     * <p>
+     *     默认使用FastJSON文本;子类可返回 {@link CompactRedisSerializer} 改用紧凑二进制格式,
+     *     其可兼容读取已有的FastJSON数据。
+     * </p>
+     * @return 值序列化
+     */
+    protected RedisSerializer<Object> createValueSerializer(){
+        return new GenericFastJsonRedisSerializer();
+    }
+
     /**
      * 创建Redis模板
      * @param redisConnectionFactory
@@ -68,45 +79,113 @@ public class RedisCacheConfigurer extends CachingConfigurerSupport {
     @Bean(name = "redisTemplate")
     public RedisTemplate<Object, Object> createRedisTemplate(final RedisConnectionFactory redisConnectionFactory){
         log.debug("createRedisTemplate(redisConnectionFactory: {})...", redisConnectionFactory);
-        final FastJsonRedisTemplate redisTemplate = new FastJsonRedisTemplate();
+        RedisMetrics.setBigValueThreshold(getBigValueThreshold());
+        final FastJsonRedisTemplate redisTemplate = new FastJsonRedisTemplate(createValueSerializer());
         redisTemplate.setConnectionFactory(redisConnectionFactory);
         return redisTemplate;
     }
 
     /**
-     * 重置缓存管理器。
+     * 分布式锁释放通知的生命周期(应用上下文关闭时释放订阅连接)
+     * @return 通知器生命周期
+     */
+    @Bean
+    public RedisLockNotifier.Registration redisLockNotifierRegistration(){
+        log.debug("redisLockNotifierRegistration...");
+        return new RedisLockNotifier.Registration();
+    }
+
+    /**
+     * 重置缓存管理器(进程内缓存 + 防击穿的Redis缓存,见 {@link TwoLevelCacheManager}、{@link ProtectedCacheManager})。
      * @param redisConnectionFactory
      * Redis连接工厂。
+     * @param cacheProperties
+     * 缓存配置。
      * @return 缓存管理器。
      */
     @Bean
-    public CacheManager createCacheManager(final RedisConnectionFactory redisConnectionFactory){
-        log.debug("createCacheManager(redisConnectionFactory: {})...", redisConnectionFactory);
+    public CacheManager createCacheManager(final RedisConnectionFactory redisConnectionFactory, final CacheProperties cacheProperties){
+        log.debug("createCacheManager(redisConnectionFactory: {}, cacheProperties: {})...", redisConnectionFactory, cacheProperties);
         //
-        final GenericFastJsonRedisSerializer fastJsonRedisSerializer = new GenericFastJsonRedisSerializer();
-        final RedisSerializationContext redisSerializationContext = RedisSerializationContext.fromSerializer(fastJsonRedisSerializer);
-        final RedisCacheConfiguration redisCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
-                .serializeValuesWith(redisSerializationContext.getValueSerializationPair())
-                //.disableCachingNullValues()
-                .entryTtl(Duration.ofMinutes(30));
-        return RedisCacheManager.builder(RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory))
-                .cacheDefaults(redisCacheConfiguration)
+        final RedisSerializationContext<Object, Object> redisSerializationContext = RedisSerializationContext.fromSerializer(new InstrumentedRedisSerializer<>(createValueSerializer()));
+        final RedisCacheConfiguration defaultConfiguration = createCacheConfiguration(redisSerializationContext, cacheProperties.getTtl(), cacheProperties.isCacheNullValues());
+        //按缓存名称单独配置
+        final Map<String, RedisCacheConfiguration> configurations = new LinkedHashMap<>();
+        cacheProperties.getCaches().keySet().forEach(name -> configurations.put(name,
+                createCacheConfiguration(redisSerializationContext, cacheProperties.getTtl(name), cacheProperties.isCacheNullValues(name))));
+        final RedisCacheManager redisCacheManager = RedisCacheManager.builder(RedisCacheWriter.nonLockingRedisCacheWriter(RedisMetrics.instrument(redisConnectionFactory)))
+                .cacheDefaults(defaultConfiguration)
+                .withInitialCacheConfigurations(configurations)
                 .build();
+        redisCacheManager.afterPropertiesSet();
+        //防击穿(单节点合并加载 + 分布式重新计算锁 + 提前刷新)
+        final int lockExpire = getCacheLockExpire();
+        RedisTemplate<Object, Object> lockTemplate = null;
+        if(lockExpire > 0){
+            lockTemplate = new FastJsonRedisTemplate(createValueSerializer());
+            lockTemplate.setConnectionFactory(redisConnectionFactory);
+            lockTemplate.afterPropertiesSet();
+        }
+        final CacheManager protectedCacheManager = new ProtectedCacheManager(redisCacheManager, lockTemplate, lockExpire, getEarlyRefreshBeta(), cacheProperties);
+        if(!cacheProperties.hasLocalCache()){
+            return protectedCacheManager;
+        }
+        //进程内缓存 + Redis缓存
+        return new TwoLevelCacheManager(protectedCacheManager, redisConnectionFactory, cacheProperties, getLocalCacheExpire());
     }
 
-    private static String createKey(@Nullable final String[] cachemes, @Nonnull Object target,@Nonnull Method method,@Nullable Object... params){
-        String key = null;
-        if(cachemes != null && cachemes.length > 0){
-            key = Joiner.on("-").join(cachemes);
-        }
-        if(!Strings.isNullOrEmpty(key)){
-            return key;
+    /**
+     * 创建Redis缓存配置
+     * @param redisSerializationContext
+     * 序列化
+     * @param ttl
+     * 缓存有效期
+     * @param cacheNullValues
+     * 是否缓存null值
+     * @return Redis缓存配置
+     */
+    private static RedisCacheConfiguration createCacheConfiguration(final RedisSerializationContext<Object, Object> redisSerializationContext, final Duration ttl, final boolean cacheNullValues){
+        RedisCacheConfiguration configuration = RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(redisSerializationContext.getValueSerializationPair())
+                .entryTtl(ttl);
+        if(!cacheNullValues){
+            configuration = configuration.disableCachingNullValues();
         }
-        return createDefaultKey(target, method, params);
+        return configuration;
+    }
+
+    /**
+     * 获取Redis大值阈值(见 {@link RedisMetrics})
+     * @return 大值阈值(字节,小于等于0时不记录大值)
+     */
+    protected int getBigValueThreshold(){
+        return 100 * 1024;
+    }
+
+    /**
+     * 获取缓存重新计算锁的有效期
+     * <p>
+     *     缓存缺失时各节点之间只有获得该锁的节点重新计算,其余节点等待后读取缓存。
+     * </p>
+     * @return 重新计算锁的有效期(秒,小于等于0时不使用分布式锁)
+     */
+    protected int getCacheLockExpire(){
+        return 10;
+    }
+
+    /**
+     * 获取缓存提前刷新系数(XFetch,只对开启 young.cache.early-refresh 的缓存生效)
+     * @return 提前刷新系数(越大越提前刷新,小于等于0时不提前刷新)
+     */
+    protected double getEarlyRefreshBeta(){
+        return 1.0;
     }
 
-    private static String createDefaultKey(@Nonnull final Object target,@Nonnull final Method method,@Nullable final Object... params){
-        //格式化缓存key字符串
-        return (target.getClass().getSimpleName() + "." + method.getName() + Arrays.toString(params)).toLowerCase();
+    /**
+     * 获取进程内缓存的有效期
+     * @return 进程内缓存的有效期(秒)
+     */
+    protected int getLocalCacheExpire(){
+        return 60;
     }
 }
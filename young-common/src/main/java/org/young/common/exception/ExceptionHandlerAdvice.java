@@ -36,6 +36,10 @@ public class ExceptionHandlerAdvice {
                 return RespUtils.createResponse(respStatus);
             }
         }
+        if(e instanceof RateLimitException){
+            //限流
+            return RespUtils.createResponse(((RateLimitException)e).getStatus());
+        }
         return RespUtils.createResponse(RespStatus.ErrWithServer, e.getMessage());
     }
 }
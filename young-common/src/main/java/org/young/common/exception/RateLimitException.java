@@ -0,0 +1,35 @@
+package org.young.common.exception;
+
+import lombok.Getter;
+import org.young.common.protocol.RespStatus;
+
+/**
+ * 限流异常
+ * @author jeasonyoung
+ */
+public class RateLimitException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * 响应状态
+     */
+    @Getter
+    private final RespStatus status;
+
+    /**
+     * 构造函数。
+     * @param status
+     * 响应状态。
+     */
+    public RateLimitException(final RespStatus status){
+        super(status.getMsg());
+        this.status = status;
+    }
+
+    /**
+     * 构造函数。
+     */
+    public RateLimitException(){
+        this(RespStatus.ErrWithRateLimit);
+    }
+}
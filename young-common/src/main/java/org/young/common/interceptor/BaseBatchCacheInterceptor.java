@@ -0,0 +1,230 @@
+package org.young.common.interceptor;
+
+import com.google.common.base.Strings;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.ResolvableType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.cache.BatchCacheable;
+import org.young.common.util.RedisUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 批量缓存Aop
+ * <p>
+ *     见 {@link BatchCacheable}: 一次 MGET 读取全部主键的缓存,只以未命中的主键调用原方法,
+ *     结果在一次管道中写回缓存,原方法未返回的主键写入短期null标记,返回值按参数中主键的顺序合并;
+ *     无论主键数量多少,Redis的往返次数固定(超过 500 个主键时按批读写)。
+ *     未配置Redis或方法不符合约定时直接执行原方法。
+ * </p>
+ * <p>
+ *     数据变更时使用 {@link RedisUtils#clearRedisCacheBatch} 清除(或 {@link RedisUtils#writeRedisCacheBatch(RedisTemplate, String, String, Map, long)} 回填)对应主键的缓存,
+ *     新增数据时同样需要清除,否则其主键的null标记在有效期内仍会返回空。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public abstract class BaseBatchCacheInterceptor {
+    /**
+     * 方法-批量缓存计划
+     */
+    private final ConcurrentMap<Method, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * 注入-Redis template
+     */
+    @Autowired(required = false)
+    private RedisTemplate<Object, Object> redisTemplate = null;
+
+    /**
+     * aop拦截器
+     * @param joinPoint
+     * aop参数
+     * @return 执行结果
+     * @throws Throwable
+     * 原方法异常
+     */
+    @Around("execution(public * *(..)) && @annotation(org.young.common.cache.BatchCacheable)")
+    public Object interceptor(final ProceedingJoinPoint joinPoint) throws Throwable {
+        log.debug("interceptor(joinPoint: {})...", joinPoint);
+        final MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        final Method method = signature.getMethod();
+        //
+        final BatchCacheable annotation = method.getAnnotation(BatchCacheable.class);
+        if(Strings.isNullOrEmpty(annotation.prefix())){
+            log.error("interceptor-BatchCacheable: 未配置缓存前缀!");
+            throw new RuntimeException("batch cache key don't null");
+        }
+        final Plan plan = plans.computeIfAbsent(method, m -> Plan.compile(m, annotation));
+        final Object[] args = joinPoint.getArgs();
+        if(redisTemplate == null || plan.index < 0 || !(args[plan.index] instanceof Collection)){
+            return joinPoint.proceed();
+        }
+        final Collection<?> ids = (Collection<?>) args[plan.index];
+        if(ids.isEmpty()){
+            return joinPoint.proceed();
+        }
+        return proceedBatch(joinPoint, plan, args, ids);
+    }
+
+    /**
+     * 批量读取缓存并以未命中的主键执行原方法
+     * @param joinPoint
+     * aop参数
+     * @param plan
+     * 批量缓存计划
+     * @param args
+     * 方法参数
+     * @param ids
+     * 主键集合
+     * @return 主键-数据
+     * @throws Throwable
+     * 原方法异常
+     */
+    private Object proceedBatch(@Nonnull final ProceedingJoinPoint joinPoint, @Nonnull final Plan plan, @Nonnull final Object[] args, @Nonnull final Collection<?> ids) throws Throwable {
+        //主键-缓存键
+        final Map<Object, String> keys = new LinkedHashMap<>(ids.size());
+        ids.forEach(id -> {
+            if(id != null){
+                keys.put(id, plan.key(id));
+            }
+        });
+        final Set<String> nulls = new HashSet<>();
+        final Map<String, ? extends Serializable> cached = RedisUtils.readRedisCacheBatch(redisTemplate, keys.values(), plan.valueClass, nulls);
+        final Collection<Object> missing = plan.newCollection();
+        keys.forEach((id, key) -> {
+            if(!cached.containsKey(key) && !nulls.contains(key)){
+                missing.add(id);
+            }
+        });
+        log.debug("proceedBatch(prefix: {})-totals: {}, missing: {}", plan.prefix, keys.size(), missing.size());
+        Map<?, ?> loaded = null;
+        if(!missing.isEmpty()){
+            final Object[] missingArgs = args.clone();
+            missingArgs[plan.index] = missing;
+            loaded = (Map<?, ?>) joinPoint.proceed(missingArgs);
+            if(loaded != null && !loaded.isEmpty()){
+                final Map<String, Serializable> writes = new LinkedHashMap<>(loaded.size());
+                loaded.forEach((id, val) -> {
+                    if(id != null && val instanceof Serializable){
+                        writes.put(plan.key(id), (Serializable) val);
+                    }
+                });
+                RedisUtils.writeRedisCacheBatch(redisTemplate, writes, plan.expire);
+            }
+            //原方法未返回的主键写入null标记
+            if(plan.nullExpire > 0){
+                final List<String> absent = new ArrayList<>();
+                for(Object id : missing){
+                    if(loaded == null || loaded.get(id) == null){
+                        absent.add(keys.get(id));
+                    }
+                }
+                RedisUtils.writeRedisCacheNulls(redisTemplate, absent, plan.nullExpire);
+            }
+        }
+        //按主键顺序合并
+        final Map<Object, Object> ret = new LinkedHashMap<>(keys.size());
+        for(Map.Entry<Object, String> entry : keys.entrySet()){
+            final Object val = cached.containsKey(entry.getValue()) ? cached.get(entry.getValue()) : (loaded == null ? null : loaded.get(entry.getKey()));
+            if(val != null){
+                ret.put(entry.getKey(), val);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * 批量缓存计划(按方法预先解析一次)
+     */
+    static class Plan {
+        /**
+         * 主键集合参数的位置(小于0时方法不符合约定)
+         */
+        int index = -1;
+        /**
+         * 主键集合参数类型
+         */
+        Class<?> collectionType;
+        /**
+         * 数据类型
+         */
+        Class<? extends Serializable> valueClass;
+        String prefix;
+        String delimiter;
+        /**
+         * 缓存有效期(秒)
+         */
+        long expire;
+        /**
+         * null标记有效期(秒,小于等于0时不缓存null标记)
+         */
+        long nullExpire;
+
+        @SuppressWarnings("unchecked")
+        static Plan compile(@Nonnull final Method method, @Nonnull final BatchCacheable annotation){
+            log.debug("compile(method: {})...", method);
+            final Plan plan = new Plan();
+            plan.prefix = annotation.prefix();
+            plan.delimiter = annotation.delimiter();
+            plan.expire = Math.max(annotation.timeUnit().toSeconds(annotation.expire()), 1);
+            plan.nullExpire = annotation.nullExpire();
+            //返回值 Map<主键, 数据>,合并结果为 LinkedHashMap
+            final ResolvableType returnType = ResolvableType.forMethodReturnType(method);
+            final Class<?> valueClass = method.getReturnType().isAssignableFrom(LinkedHashMap.class) ? returnType.asMap().resolveGeneric(1) : null;
+            if(valueClass == null || !Serializable.class.isAssignableFrom(valueClass)){
+                log.warn("compile(method: {})-返回值须为可接收 LinkedHashMap 的 Map<主键, 可序列化数据>,不使用批量缓存!", method);
+                return plan;
+            }
+            plan.valueClass = (Class<? extends Serializable>) valueClass;
+            //第一个可接收 List 或 Set 的集合参数
+            final Class<?>[] types = method.getParameterTypes();
+            for(int i = 0; i < types.length; i++){
+                if(Collection.class.isAssignableFrom(types[i]) && (types[i].isAssignableFrom(ArrayList.class) || types[i].isAssignableFrom(LinkedHashSet.class))){
+                    plan.index = i;
+                    plan.collectionType = types[i];
+                    break;
+                }
+            }
+            if(plan.index < 0){
+                log.warn("compile(method: {})-未找到主键集合参数,不使用批量缓存!", method);
+            }
+            return plan;
+        }
+
+        /**
+         * 主键的缓存键
+         * @param id
+         * 主键
+         * @return 缓存键
+         */
+        String key(@Nonnull final Object id){
+            return RedisUtils.batchCacheKey(prefix, delimiter, id);
+        }
+
+        /**
+         * 创建与参数类型兼容的主键集合
+         * @return 主键集合
+         */
+        Collection<Object> newCollection(){
+            return collectionType.isAssignableFrom(ArrayList.class) ? new ArrayList<>() : new LinkedHashSet<>();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package org.young.common.interceptor;
+
+import com.google.common.base.Strings;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.exception.RateLimitException;
+import org.young.common.lock.Concurrency;
+import org.young.common.lock.LockKeyPlan;
+import org.young.common.lock.RedisSemaphore;
+import org.young.common.protocol.RespStatus;
+import org.young.common.protocol.RespUtils;
+import org.young.common.protocol.response.Response;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis分布式并发数限制Aop
+ * <p>
+ *     并发键与锁键的生成规则一致(前缀 + 带有 {@link org.young.common.lock.LockParam} 注解的参数);
+ *     请求许可超时时,返回类型为 {@link Response} 的方法直接返回 {@link RespStatus#ErrWithBusy} 响应报文,
+ *     其他方法抛出 {@link RateLimitException}。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public abstract class BaseConcurrencyInterceptor {
+    /**
+     * 方法-并发键生成计划
+     */
+    private final ConcurrentMap<Method, LockKeyPlan> plans = new ConcurrentHashMap<>();
+    /**
+     * 并发键-进程内信号量(未配置Redis时使用)
+     * <p>
+     *     弱引用持有信号量: 正在使用的信号量由执行线程引用,空闲后即可回收,避免并发键无限增长。
+     * </p>
+     */
+    private final ConcurrentMap<String, Semaphore> semaphores = CacheBuilder.newBuilder().weakValues().<String, Semaphore>build().asMap();
+
+    /**
+     * 注入-Redis template
+     */
+    @Autowired(required = false)
+    private RedisTemplate<Object, Object> redisTemplate = null;
+
+    /**
+     * aop拦截器
+     * @param joinPoint
+     * aop参数
+     * @return 执行结果
+     * @throws Throwable
+     * 原方法异常
+     */
+    @Around("execution(public * *(..)) && @annotation(org.young.common.lock.Concurrency)")
+    public Object interceptor(final ProceedingJoinPoint joinPoint) throws Throwable {
+        log.debug("interceptor(joinPoint: {})...", joinPoint);
+        final MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        final Method method = signature.getMethod();
+        //
+        final Concurrency annotation = method.getAnnotation(Concurrency.class);
+        if(Strings.isNullOrEmpty(annotation.prefix())){
+            log.error("interceptor-Concurrency: 未配置并发前缀!");
+            throw new RuntimeException("concurrency key don't null");
+        }
+        final String key = plans.computeIfAbsent(method, m -> LockKeyPlan.compile(m, annotation.prefix(), annotation.delimiter()))
+                .getKey(joinPoint.getArgs());
+        if(redisTemplate == null){
+            return proceedLocal(joinPoint, method, annotation, key);
+        }
+        final int expire = (int) TimeUnit.SECONDS.convert(annotation.expire(), annotation.timeUnit());
+        final RedisSemaphore semaphore = new RedisSemaphore(redisTemplate, key, annotation.permits(), expire, annotation.waitTime());
+        semaphore.setRenew(annotation.renew());
+        final boolean acquired = annotation.waitTime() < 0 ? semaphore.lockBlock() : semaphore.tryLock();
+        log.info("interceptor-tryLock(key: {}): {}", key, acquired);
+        if(!acquired){
+            return reject(method, key);
+        }
+        try {
+            //执行原程序
+            return joinPoint.proceed();
+        }finally {
+            //归还许可
+            semaphore.unlock();
+        }
+    }
+
+    /**
+     * 使用进程内信号量执行
+     * @param joinPoint
+     * aop参数
+     * @param method
+     * 拦截方法
+     * @param annotation
+     * 并发数限制注解
+     * @param key
+     * 并发键
+     * @return 执行结果
+     * @throws Throwable
+     * 原方法异常
+     */
+    private Object proceedLocal(@Nonnull final ProceedingJoinPoint joinPoint, @Nonnull final Method method, @Nonnull final Concurrency annotation, @Nonnull final String key) throws Throwable {
+        final Semaphore semaphore = semaphores.computeIfAbsent(key, k -> new Semaphore(annotation.permits()));
+        boolean acquired = false;
+        try {
+            if(annotation.waitTime() < 0){
+                semaphore.acquire();
+                acquired = true;
+            }else {
+                acquired = semaphore.tryAcquire(annotation.waitTime(), TimeUnit.MILLISECONDS);
+            }
+        }catch (InterruptedException e){
+            log.warn("proceedLocal-获取许可等待被中断:" + e.getMessage());
+            Thread.currentThread().interrupt();
+        }
+        if(!acquired){
+            return reject(method, key);
+        }
+        try {
+            //执行原程序
+            return joinPoint.proceed();
+        }finally {
+            semaphore.release();
+        }
+    }
+
+    /**
+     * 拒绝执行
+     * @param method
+     * 拦截方法
+     * @param key
+     * 并发键
+     * @return 拒绝响应报文
+     */
+    private static Object reject(@Nonnull final Method method, @Nonnull final String key){
+        log.warn("interceptor-concurrency: 并发数已满(key: {})!", key);
+        if(method.getReturnType() == Response.class){
+            return RespUtils.createResponse(RespStatus.ErrWithBusy);
+        }
+        throw new RateLimitException(RespStatus.ErrWithBusy);
+    }
+}
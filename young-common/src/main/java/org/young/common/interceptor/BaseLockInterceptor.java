@@ -7,12 +7,30 @@ import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.lock.DistributedLock;
+import org.young.common.lock.ExponentialLockBackoff;
+import org.young.common.lock.LocalLockTable;
 import org.young.common.lock.Lock;
+import org.young.common.lock.LockBackoff;
 import org.young.common.lock.LockKeyGenerator;
 import org.young.common.lock.LockKeyGeneratorDefaultImpl;
+import org.young.common.lock.LockMetrics;
+import org.young.common.lock.LockMode;
+import org.young.common.lock.MultiRedisLock;
 import org.young.common.lock.RedisLock;
+import org.young.common.lock.RedisReadWriteLock;
 
+import javax.annotation.Nonnull;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,7 +41,28 @@ import java.util.concurrent.TimeUnit;
  */
 @Slf4j
 public abstract class BaseLockInterceptor {
+    /**
+     * 合并执行结果的锁键后缀
+     */
+    private static final String RESULT_SUFFIX = ":result";
+    /**
+     * 当前线程正在合并执行的锁键(嵌套调用同一锁键时直接执行)
+     */
+    private static final ThreadLocal<Set<String>> COALESCING = ThreadLocal.withInitial(HashSet::new);
+
     private final LockKeyGenerator keyGenerator = new LockKeyGeneratorDefaultImpl();
+    /**
+     * 进程内锁表(Redis锁的前置锁,未配置Redis时的替代锁)
+     */
+    private final LocalLockTable localLocks = new LocalLockTable();
+    /**
+     * 进程内公平锁表(公平模式使用)
+     */
+    private final LocalLockTable fairLocalLocks = new LocalLockTable(true);
+    /**
+     * 合并执行中的锁键-执行结果
+     */
+    private final ConcurrentMap<String, CompletableFuture<Object>> flights = new ConcurrentHashMap<>();
 
     /**
      * 注入-Redis template
@@ -48,19 +87,21 @@ public abstract class BaseLockInterceptor {
             log.error("interceptor-Lock: 未配置锁前缀!");
             throw new RuntimeException("lock key don't null");
         }
-        final String lockKey = keyGenerator.getLockKey(joinPoint);
-        log.info("interceptor-getLockKey-lockKey: {}", lockKey);
-        //
-        final int expire = (int) TimeUnit.SECONDS.convert(annotation.expire(), annotation.timeUnit());
-        final RedisLock redisLock = redisTemplate == null ? null : new RedisLock(redisTemplate, lockKey, expire);
+        //锁键排序去重,多个锁键时按序加锁
+        final List<String> keys = keyGenerator.getLockKeys(joinPoint);
+        final List<String> lockKeys = keys.size() > 1 ? new ArrayList<>(new TreeSet<>(keys)) : keys;
+        log.info("interceptor-getLockKeys-lockKeys: {}", lockKeys);
+        if(annotation.mode() == LockMode.COALESCE){
+            return coalesce(joinPoint, annotation, lockKeys);
+        }
+        //请求锁超时时间
+        final long waitTime = annotation.waitTime() >= 0 ? annotation.waitTime() : (annotation.mode() == LockMode.FAIL ? RedisLock.TIME_OUT : -1);
+        LockHandle handle = null;
         try{
-            if(redisLock != null) {
-                final boolean success = redisLock.tryLock();
-                log.info("interceptor-tryLock: {}", success);
-                if (!success) {
-                    log.warn("interceptor-tryLock: 没有获得锁!");
-                    throw new RuntimeException("请勿重复执行!");
-                }
+            handle = acquire(annotation, lockKeys, waitTime);
+            if(handle == null){
+                log.warn("interceptor-tryLock: 没有获得锁!");
+                throw new RuntimeException("请勿重复执行!");
             }
             //执行原程序
             return joinPoint.proceed();
@@ -68,12 +109,317 @@ public abstract class BaseLockInterceptor {
             log.error("interceptor-exp:" + ex.getMessage(), ex);
             throw new RuntimeException(ex);
         }finally {
-            if(redisLock != null) {
+            if(handle != null) {
                 //解锁
-                final boolean success = redisLock.unlock();
-                log.info("interceptor-unlock-success: {}", success);
+                handle.release();
             }
         }
     }
 
+    /**
+     * 合并执行
+     * <p>
+     *     同一节点内同一锁键只有一个线程执行,其余线程等待并共享其执行结果;
+     *     其他节点持有锁时等待锁释放,优先读取持有者保存在Redis中的执行结果,结果不存在时再自行执行。
+     * </p>
+     * @param joinPoint
+     * aop参数
+     * @param annotation
+     * 锁注解
+     * @param lockKeys
+     * 锁键集合
+     * @return 执行结果
+     */
+    private Object coalesce(@Nonnull final ProceedingJoinPoint joinPoint, @Nonnull final Lock annotation, @Nonnull final List<String> lockKeys){
+        final String lockKey = String.join(",", lockKeys);
+        final Set<String> running = COALESCING.get();
+        if(running.contains(lockKey)){
+            //当前线程嵌套调用(已持有该锁键),直接执行
+            return proceed(joinPoint);
+        }
+        final CompletableFuture<Object> flight = new CompletableFuture<>();
+        final CompletableFuture<Object> leader = flights.putIfAbsent(lockKey, flight);
+        if(leader != null){
+            //等待本节点的执行结果
+            log.info("interceptor-coalesce-等待本节点执行结果: {}", lockKey);
+            LockMetrics.getStats(annotation.prefix()).coalesced();
+            return await(leader, annotation.waitTime());
+        }
+        LockHandle handle = null;
+        running.add(lockKey);
+        try{
+            final String resultKey = lockKey + RESULT_SUFFIX;
+            //立即尝试获取锁(未获得时记为合并执行,不计入加锁失败)
+            handle = acquire(annotation, lockKeys, 0, true);
+            if(handle == null){
+                //其他节点正在执行,等待锁释放
+                handle = acquire(annotation, lockKeys, annotation.waitTime());
+                if(handle == null){
+                    log.warn("interceptor-coalesce: 没有获得锁!");
+                    throw new RuntimeException("请勿重复执行!");
+                }
+                if(redisTemplate != null){
+                    final Object result = redisTemplate.opsForValue().get(resultKey);
+                    if(result != null){
+                        log.info("interceptor-coalesce-使用其他节点执行结果: {}", lockKey);
+                        flight.complete(result);
+                        return result;
+                    }
+                }
+            }
+            if(redisTemplate != null){
+                //清除上一次的执行结果,避免本次结果为null时等待者读到旧结果
+                redisTemplate.delete(resultKey);
+            }
+            //执行原程序
+            final Object result = joinPoint.proceed();
+            if(redisTemplate != null && result != null){
+                final long expire = TimeUnit.MILLISECONDS.convert(annotation.resultExpire(), annotation.timeUnit());
+                if(expire > 0) {
+                    redisTemplate.opsForValue().set(resultKey, result, expire, TimeUnit.MILLISECONDS);
+                }
+            }
+            flight.complete(result);
+            return result;
+        }catch (Throwable ex){
+            log.error("interceptor-coalesce-exp:" + ex.getMessage(), ex);
+            flight.completeExceptionally(ex);
+            throw new RuntimeException(ex);
+        }finally {
+            running.remove(lockKey);
+            flights.remove(lockKey, flight);
+            if(handle != null){
+                //解锁
+                handle.release();
+            }
+        }
+    }
+
+    /**
+     * 直接执行原程序
+     * @param joinPoint
+     * aop参数
+     * @return 执行结果
+     */
+    private static Object proceed(@Nonnull final ProceedingJoinPoint joinPoint){
+        try {
+            return joinPoint.proceed();
+        }catch (RuntimeException ex){
+            throw ex;
+        }catch (Throwable ex){
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * 等待本节点的合并执行结果
+     * @param leader
+     * 执行结果
+     * @param waitTime
+     * 等待时间(毫秒,小于0时一直等待)
+     * @return 执行结果
+     */
+    private static Object await(@Nonnull final CompletableFuture<Object> leader, final long waitTime){
+        try {
+            return waitTime < 0 ? leader.get() : leader.get(waitTime, TimeUnit.MILLISECONDS);
+        }catch (ExecutionException ex){
+            throw new RuntimeException(ex.getCause());
+        }catch (InterruptedException ex){
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }catch (Throwable ex){
+            log.warn("interceptor-coalesce-等待执行结果失败:" + ex.getMessage());
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * 获取锁(先获取本地锁,再获取Redis锁)
+     * @param annotation
+     * 锁注解
+     * @param lockKeys
+     * 锁键集合(已排序去重)
+     * @param waitTime
+     * 请求锁超时时间(毫秒,本地锁与Redis锁共用,小于0时一直等待)
+     * @return 锁句柄(未获得锁时返回null)
+     */
+    private LockHandle acquire(@Nonnull final Lock annotation, @Nonnull final List<String> lockKeys, final long waitTime){
+        return acquire(annotation, lockKeys, waitTime, false);
+    }
+
+    /**
+     * 获取锁(先获取本地锁,再获取Redis锁)
+     * @param annotation
+     * 锁注解
+     * @param lockKeys
+     * 锁键集合(已排序去重)
+     * @param waitTime
+     * 请求锁超时时间(毫秒,本地锁与Redis锁共用,小于0时一直等待)
+     * @param probe
+     * 是否为合并执行的探测(未获得锁时记为合并执行,不计入加锁失败)
+     * @return 锁句柄(未获得锁时返回null)
+     */
+    private LockHandle acquire(@Nonnull final Lock annotation, @Nonnull final List<String> lockKeys, final long waitTime, final boolean probe){
+        final LockMetrics.Stats stats = LockMetrics.getStats(annotation.prefix());
+        LockMetrics.takeRetries();
+        final long start = System.nanoTime();
+        final LockHandle handle = tryAcquire(annotation, lockKeys, waitTime);
+        final long now = System.nanoTime();
+        if(handle == null && probe){
+            stats.coalesced();
+            return null;
+        }
+        //记录等待时间及加锁结果
+        stats.acquired(handle != null, now - start, LockMetrics.takeRetries());
+        if(handle != null){
+            handle.stats = stats;
+            handle.acquiredAt = now;
+        }
+        return handle;
+    }
+
+    /**
+     * 尝试获取锁(先获取本地锁,再获取Redis锁)
+     * @param annotation
+     * 锁注解
+     * @param lockKeys
+     * 锁键集合(已排序去重)
+     * @param waitTime
+     * 请求锁超时时间(毫秒,本地锁与Redis锁共用,小于0时一直等待)
+     * @return 锁句柄(未获得锁时返回null)
+     */
+    private LockHandle tryAcquire(@Nonnull final Lock annotation, @Nonnull final List<String> lockKeys, final long waitTime){
+        final long start = System.nanoTime();
+        final LockHandle handle = new LockHandle(localTable(annotation));
+        final boolean shared = annotation.mode() == LockMode.READ;
+        if(annotation.local() || redisTemplate == null){
+            for(String lockKey : lockKeys){
+                final long timeout = remaining(waitTime, start);
+                final boolean locked = shared ? handle.table.tryReadLock(lockKey, timeout, TimeUnit.MILLISECONDS)
+                        : handle.table.tryLock(lockKey, timeout, TimeUnit.MILLISECONDS);
+                log.info("interceptor-tryLock-local(lockKey: {}): {}", lockKey, locked);
+                if(!locked){
+                    handle.release();
+                    return null;
+                }
+                handle.localKeys.add(lockKey);
+            }
+        }
+        if(redisTemplate != null) {
+            final int expire = (int) TimeUnit.SECONDS.convert(annotation.expire(), annotation.timeUnit());
+            final LockBackoff backoff = annotation.backoff() > 0 ? new ExponentialLockBackoff(annotation.backoff(), annotation.backoffMax()) : null;
+            if(annotation.mode() == LockMode.READ || annotation.mode() == LockMode.WRITE){
+                //读写锁按序逐个加锁
+                for(String lockKey : lockKeys){
+                    final RedisReadWriteLock readWriteLock = new RedisReadWriteLock(redisTemplate, lockKey, expire, remaining(waitTime, start));
+                    readWriteLock.setRenew(annotation.renew());
+                    readWriteLock.setBackoff(backoff);
+                    if(!handle.tryLock(shared ? readWriteLock.readLock() : readWriteLock.writeLock())){
+                        handle.release();
+                        return null;
+                    }
+                }
+                return handle;
+            }
+            final long timeOut = remaining(waitTime, start);
+            final DistributedLock lock;
+            if(lockKeys.size() == 1){
+                final RedisLock redisLock = new RedisLock(redisTemplate, lockKeys.get(0), expire, timeOut);
+                redisLock.setRenew(annotation.renew());
+                redisLock.setFair(annotation.fair());
+                redisLock.setBackoff(backoff);
+                lock = redisLock;
+            }else {
+                final MultiRedisLock multiLock = new MultiRedisLock(redisTemplate, lockKeys, expire, timeOut);
+                multiLock.setRenew(annotation.renew());
+                multiLock.setBackoff(backoff);
+                lock = multiLock;
+            }
+            if (!handle.tryLock(lock)) {
+                handle.release();
+                return null;
+            }
+        }
+        return handle;
+    }
+
+    /**
+     * 计算剩余的请求锁超时时间
+     * @param waitTime
+     * 请求锁超时时间(毫秒,小于0时一直等待)
+     * @param start
+     * 开始时间(纳秒)
+     * @return 剩余的请求锁超时时间(毫秒,小于0时一直等待)
+     */
+    private static long remaining(final long waitTime, final long start){
+        if(waitTime < 0){
+            return -1;
+        }
+        return Math.max(waitTime - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), 0);
+    }
+
+    /**
+     * 获取锁注解对应的进程内锁表
+     * @param annotation
+     * 锁注解
+     * @return 进程内锁表
+     */
+    private LocalLockTable localTable(@Nonnull final Lock annotation){
+        return annotation.fair() ? fairLocalLocks : localLocks;
+    }
+
+    /**
+     * 锁句柄
+     */
+    private class LockHandle {
+        private final LocalLockTable table;
+        private final List<String> localKeys = new ArrayList<>();
+        private final List<DistributedLock> locks = new ArrayList<>(1);
+        /**
+         * 锁前缀的统计(获得锁后设置)
+         */
+        private LockMetrics.Stats stats;
+        /**
+         * 获得锁的时间(纳秒)
+         */
+        private long acquiredAt;
+
+        LockHandle(@Nonnull final LocalLockTable table){
+            this.table = table;
+        }
+
+        /**
+         * 尝试获取Redis锁
+         * @param lock
+         * Redis锁
+         * @return 是否获得锁
+         */
+        boolean tryLock(@Nonnull final DistributedLock lock){
+            final boolean success = lock.tryLock();
+            log.info("interceptor-tryLock: {}", success);
+            if(success){
+                locks.add(lock);
+            }
+            return success;
+        }
+
+        /**
+         * 释放锁(先逆序释放Redis锁,再逆序释放本地锁)
+         */
+        void release(){
+            if(stats != null){
+                //记录持有时间
+                stats.released(System.nanoTime() - acquiredAt);
+                stats = null;
+            }
+            for(int i = locks.size() - 1; i >= 0; i--) {
+                final boolean success = locks.get(i).unlock();
+                log.info("interceptor-unlock-success: {}", success);
+            }
+            for(int i = localKeys.size() - 1; i >= 0; i--){
+                //释放本地锁
+                table.unlock(localKeys.get(i));
+            }
+        }
+    }
 }
@@ -0,0 +1,101 @@
+package org.young.common.interceptor;
+
+import com.google.common.base.Strings;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.exception.RateLimitException;
+import org.young.common.limit.RateLimit;
+import org.young.common.limit.RedisRateLimiter;
+import org.young.common.lock.LockKeyPlan;
+import org.young.common.protocol.RespStatus;
+import org.young.common.protocol.RespUtils;
+import org.young.common.protocol.response.Response;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Redis分布式限流Aop
+ * <p>
+ *     限流键与锁键的生成规则一致(前缀 + 带有 {@link org.young.common.lock.LockParam} 注解的参数);
+ *     被限流时,返回类型为 {@link Response} 的方法直接返回 {@link RespStatus#ErrWithRateLimit} 响应报文,
+ *     其他方法抛出 {@link RateLimitException} 由 {@link org.young.common.exception.ExceptionHandlerAdvice} 转换为响应报文。
+ *     未配置Redis时不限流。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public abstract class BaseRateLimitInterceptor {
+    /**
+     * 方法-限流键生成计划
+     */
+    private final ConcurrentMap<Method, LockKeyPlan> plans = new ConcurrentHashMap<>();
+    /**
+     * 限流器
+     */
+    private volatile RedisRateLimiter rateLimiter;
+
+    /**
+     * 注入-Redis template
+     */
+    @Autowired(required = false)
+    private RedisTemplate<Object, Object> redisTemplate = null;
+
+    /**
+     * aop拦截器
+     * @param joinPoint
+     * aop参数
+     * @return 执行结果
+     * @throws Throwable
+     * 原方法异常
+     */
+    @Around("execution(public * *(..)) && @annotation(org.young.common.limit.RateLimit)")
+    public Object interceptor(final ProceedingJoinPoint joinPoint) throws Throwable {
+        log.debug("interceptor(joinPoint: {})...", joinPoint);
+        final MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        final Method method = signature.getMethod();
+        //
+        final RateLimit annotation = method.getAnnotation(RateLimit.class);
+        if(Strings.isNullOrEmpty(annotation.prefix())){
+            log.error("interceptor-RateLimit: 未配置限流前缀!");
+            throw new RuntimeException("rate limit key don't null");
+        }
+        final RedisRateLimiter limiter = getRateLimiter();
+        if(limiter != null && annotation.permits() > 0){
+            final String key = plans.computeIfAbsent(method, m -> LockKeyPlan.compile(m, annotation.prefix(), annotation.delimiter()))
+                    .getKey(joinPoint.getArgs());
+            final long period = Math.max(annotation.timeUnit().toMillis(annotation.period()), 1);
+            final int capacity = annotation.capacity() > 0 ? annotation.capacity() : annotation.permits();
+            if(!limiter.tryAcquire(key, annotation.permits(), period, capacity)){
+                log.warn("interceptor-rateLimit: 请求过于频繁(key: {})!", key);
+                if(method.getReturnType() == Response.class){
+                    return RespUtils.createResponse(RespStatus.ErrWithRateLimit);
+                }
+                throw new RateLimitException();
+            }
+        }
+        //执行原程序
+        return joinPoint.proceed();
+    }
+
+    /**
+     * 获取限流器
+     * @return 限流器(未配置Redis时返回null)
+     */
+    private RedisRateLimiter getRateLimiter(){
+        if(rateLimiter == null && redisTemplate != null){
+            synchronized (this){
+                if(rateLimiter == null){
+                    rateLimiter = new RedisRateLimiter(redisTemplate);
+                }
+            }
+        }
+        return rateLimiter;
+    }
+}
@@ -0,0 +1,56 @@
+package org.young.common.limit;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流注解
+ * <p>
+ *     按限流键(前缀 + 带有 {@link org.young.common.lock.LockParam} 注解的参数)在全部节点范围内限制调用频率,
+ *     采用令牌桶算法: 每个周期补充 permits 个令牌,最多积累 capacity 个令牌。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface RateLimit {
+
+    /**
+     * 限流key的前缀
+     * @return 限流key的前缀
+     */
+    String prefix() default "limit_";
+
+    /**
+     * 限流key分隔符(默认 :)
+     * @return 限流key分隔符
+     */
+    String delimiter() default ":";
+
+    /**
+     * 每个周期允许的调用次数
+     * @return 每个周期允许的调用次数
+     */
+    int permits();
+
+    /**
+     * 周期(默认 1)
+     * @return 周期
+     */
+    int period() default 1;
+
+    /**
+     * 周期单位(默认 秒)
+     * @return 周期单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 令牌桶容量,即允许的突发调用次数(小于等于0时与 permits 相同)
+     * @return 令牌桶容量
+     */
+    int capacity() default 0;
+}
@@ -0,0 +1,135 @@
+package org.young.common.limit;
+
+import com.google.common.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.protocol.Constants;
+import org.young.common.util.CacheUtils;
+import org.young.common.util.RedisScriptRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis分布式限流器(令牌桶)
+ * <p>
+ *     令牌桶以哈希结构保存在Redis中(字段 tokens: 剩余令牌, ts: 上次补充时间),补充与扣减在lua脚本中原子完成。
+ *     被拒绝时脚本返回令牌恢复前需等待的时间,等待期间同一节点对该限流键的调用直接在本地拒绝,不再访问Redis。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisRateLimiter {
+    /**
+     * 令牌桶lua脚本
+     * <p>
+     *     KEYS[1]: 限流键; ARGV[1]: 令牌桶容量; ARGV[2]: 每个周期补充的令牌数; ARGV[3]: 周期(毫秒); 当前时间取Redis服务器时间,不受各节点时钟偏差影响。
+     *     返回 {是否允许(1/0), 需等待的时间(毫秒)}。
+     * </p>
+     */
+    public static final String TOKEN_BUCKET_LUA;
+    /**
+     * 令牌桶脚本
+     */
+    private static final RedisScriptRegistry.Script TOKEN_BUCKET_SCRIPT;
+    /**
+     * 本地拒绝缓存的最大限流键数量
+     */
+    private static final int MAX_DENIED_KEYS = 10000;
+
+    static {
+        TOKEN_BUCKET_LUA = "redis.replicate_commands() " +
+                "local capacity = tonumber(ARGV[1]) " +
+                "local permits = tonumber(ARGV[2]) " +
+                "local period = tonumber(ARGV[3]) " +
+                "local time = redis.call(\"time\") " +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+                "local bucket = redis.call(\"hmget\",KEYS[1],\"tokens\",\"ts\") " +
+                "local tokens = tonumber(bucket[1]) " +
+                "local ts = tonumber(bucket[2]) " +
+                "if tokens == nil or ts == nil " +
+                "then " +
+                "    tokens = capacity " +
+                "    ts = now " +
+                "end " +
+                "tokens = math.min(capacity, tokens + math.max(0, now - ts) * permits / period) " +
+                "local allowed = 0 " +
+                "local wait = 0 " +
+                "if tokens >= 1 " +
+                "then " +
+                "    tokens = tokens - 1 " +
+                "    allowed = 1 " +
+                "else " +
+                "    wait = math.ceil((1 - tokens) * period / permits) " +
+                "end " +
+                "redis.call(\"hmset\",KEYS[1],\"tokens\",tostring(tokens),\"ts\",tostring(math.max(now, ts))) " +
+                "redis.call(\"pexpire\",KEYS[1],math.ceil(capacity * period / permits) + 1000) " +
+                "return {allowed, wait} ";
+        TOKEN_BUCKET_SCRIPT = RedisScriptRegistry.register(TOKEN_BUCKET_LUA);
+    }
+
+    /**
+     * 限流键-本地拒绝截止时间(毫秒)
+     */
+    private final Cache<String, Long> denied = CacheUtils.createCache("rate_limit_denied", MAX_DENIED_KEYS, 1, TimeUnit.MINUTES);
+    /**
+     * redisTemplate
+     */
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * redisTemplate
+     */
+    public RedisRateLimiter(@Nonnull final RedisTemplate<Object, Object> redisTemplate){
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * 尝试获取一个令牌
+     * @param key
+     * 限流键
+     * @param permits
+     * 每个周期补充的令牌数
+     * @param periodMillis
+     * 周期(毫秒)
+     * @param capacity
+     * 令牌桶容量
+     * @return 是否允许调用
+     */
+    @SuppressWarnings("unchecked")
+    public boolean tryAcquire(@Nonnull final String key, final int permits, final long periodMillis, final int capacity){
+        log.debug("tryAcquire(key: {}, permits: {}, periodMillis: {}, capacity: {})...", key, permits, periodMillis, capacity);
+        final long now = System.currentTimeMillis();
+        //本地预检: 令牌恢复前直接拒绝
+        final Long until = denied.getIfPresent(key);
+        if(until != null){
+            if(now < until){
+                return false;
+            }
+            denied.invalidate(key);
+        }
+        final List<Object> ret = RedisScriptRegistry.eval(redisTemplate, TOKEN_BUCKET_SCRIPT, ReturnType.MULTI, 1,
+                key.getBytes(Constants.CHARSET),
+                String.valueOf(capacity).getBytes(Constants.CHARSET),
+                String.valueOf(permits).getBytes(Constants.CHARSET),
+                String.valueOf(periodMillis).getBytes(Constants.CHARSET)
+        );
+        if(ret == null || ret.size() < 2){
+            //限流脚本异常时放行
+            return true;
+        }
+        if(((Long) ret.get(0)) > 0){
+            return true;
+        }
+        final long wait = (Long) ret.get(1);
+        if(wait > 0){
+            denied.put(key, now + wait);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,66 @@
+package org.young.common.lock;
+
+import java.lang.annotation.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 并发数限制注解
+ * <p>
+ *     按并发键(前缀 + 带有 {@link LockParam} 注解的参数)在全部节点范围内限制同时执行的调用数,
+ *     每次调用持有一个 {@link RedisSemaphore} 许可,执行结束后归还;
+ *     未配置Redis时退化为进程内信号量。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Inherited
+public @interface Concurrency {
+
+    /**
+     * 并发key的前缀
+     * @return 并发key的前缀
+     */
+    String prefix() default "concurrency_";
+
+    /**
+     * 并发key分隔符(默认 :)
+     * @return 并发key分隔符
+     */
+    String delimiter() default ":";
+
+    /**
+     * 允许同时执行的调用数
+     * @return 允许同时执行的调用数
+     */
+    int permits();
+
+    /**
+     * 许可的租期(默认 5)
+     * <p>
+     *     开启自动续期时,持有期间按租期自动续期,租期只决定持有节点宕机后许可的最长残留时间。
+     * </p>
+     * @return 许可的租期
+     */
+    int expire() default 5;
+
+    /**
+     * 租期单位(默认 秒)
+     * @return 租期单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 是否在持有期间自动续期(默认 是)
+     * @return 是否自动续期
+     */
+    boolean renew() default true;
+
+    /**
+     * 请求许可的超时时间(毫秒,小于0时一直等待)
+     * @return 请求许可的超时时间
+     */
+    long waitTime() default RedisLock.TIME_OUT;
+}
@@ -0,0 +1,33 @@
+package org.young.common.lock;
+
+/**
+ * 分布式锁接口
+ *
+ * @author jeasonyoung
+ */
+public interface DistributedLock {
+
+    /**
+     * 尝试获取锁 超时返回
+     * @return 返回获取锁的结果
+     */
+    boolean tryLock();
+
+    /**
+     * 获取锁
+     * @return 获取锁结果
+     */
+    boolean lock();
+
+    /**
+     * 以阻塞方式的获取锁
+     * @return 是否成功获得锁
+     */
+    boolean lockBlock();
+
+    /**
+     * 解锁
+     * @return 解锁结果
+     */
+    Boolean unlock();
+}
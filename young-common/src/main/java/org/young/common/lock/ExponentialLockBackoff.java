@@ -0,0 +1,43 @@
+package org.young.common.lock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指数退避策略(全抖动)
+ * <p>
+ *     第n次失败后的等待上限为 min(cap, base * 2^(n-1)),实际等待时间在 [0, 上限] 内均匀随机,
+ *     竞争激烈时等待线程的重试时间被打散,避免同时重试;等待上限封顶,等待时间的长尾可预期。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+public class ExponentialLockBackoff implements LockBackoff {
+    /**
+     * 初始等待上限(纳秒)
+     */
+    private final long base;
+    /**
+     * 最大等待上限(纳秒)
+     */
+    private final long cap;
+
+    /**
+     * 构造函数
+     * @param baseMillis
+     * 初始等待上限(毫秒)
+     * @param capMillis
+     * 最大等待上限(毫秒)
+     */
+    public ExponentialLockBackoff(final long baseMillis, final long capMillis){
+        this.base = TimeUnit.MILLISECONDS.toNanos(Math.max(baseMillis, 1));
+        this.cap = Math.max(TimeUnit.MILLISECONDS.toNanos(capMillis), this.base);
+    }
+
+    @Override
+    public long delay(final int attempt) {
+        final int shift = Math.min(Math.max(attempt - 1, 0), 30);
+        final long ceil = (cap >> shift) < base ? cap : base << shift;
+        return ThreadLocalRandom.current().nextLong(ceil + 1);
+    }
+}
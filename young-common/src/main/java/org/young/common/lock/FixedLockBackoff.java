@@ -0,0 +1,37 @@
+package org.young.common.lock;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 固定间隔退避策略(附加随机抖动)
+ *
+ * @author jeasonyoung
+ */
+public class FixedLockBackoff implements LockBackoff {
+    /**
+     * 等待间隔(纳秒)
+     */
+    private final long interval;
+    /**
+     * 随机抖动上限(纳秒)
+     */
+    private final long jitter;
+
+    /**
+     * 构造函数
+     * @param intervalMillis
+     * 等待间隔(毫秒)
+     * @param jitterMillis
+     * 随机抖动上限(毫秒)
+     */
+    public FixedLockBackoff(final long intervalMillis, final long jitterMillis){
+        this.interval = TimeUnit.MILLISECONDS.toNanos(Math.max(intervalMillis, 0));
+        this.jitter = TimeUnit.MILLISECONDS.toNanos(Math.max(jitterMillis, 0));
+    }
+
+    @Override
+    public long delay(final int attempt) {
+        return jitter > 0 ? interval + ThreadLocalRandom.current().nextLong(jitter) : interval;
+    }
+}
@@ -0,0 +1,178 @@
+package org.young.common.lock;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内按锁键划分的锁表
+ * <p>
+ *     作为Redis分布式锁的前置锁使用: 同一节点上争抢同一锁键的线程先在本地排队,
+ *     只有本地获胜的线程才去Redis争抢,从而减少热点锁键上的Redis请求;
+ *     未配置Redis时直接作为进程内的锁使用。
+ * </p>
+ * <p>
+ *     每个锁键对应一个可重入读写锁,排他锁使用写锁,共享锁使用读锁;
+ *     锁对象按引用计数维护,最后一个使用者释放后即从锁表中移除。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class LocalLockTable {
+    /**
+     * 锁键-锁对象
+     */
+    private final ConcurrentMap<String, Entry> locks = new ConcurrentHashMap<>();
+    /**
+     * 是否公平锁(按到达顺序获得锁)
+     */
+    private final boolean fair;
+
+    /**
+     * 构造函数(非公平锁)
+     */
+    public LocalLockTable(){
+        this(false);
+    }
+
+    /**
+     * 构造函数
+     * @param fair
+     * 是否公平锁
+     */
+    public LocalLockTable(final boolean fair){
+        this.fair = fair;
+    }
+
+    /**
+     * 尝试获取本地锁(排他)
+     * @param lockKey
+     * 锁键
+     * @param timeout
+     * 请求锁超时时间(小于0时一直等待)
+     * @param unit
+     * 时间单位
+     * @return 是否获得锁
+     */
+    public boolean tryLock(@Nonnull final String lockKey, final long timeout, @Nonnull final TimeUnit unit){
+        log.debug("tryLock(lockKey: {}, timeout: {}, unit: {})...", lockKey, timeout, unit);
+        return tryLock(lockKey, false, timeout, unit);
+    }
+
+    /**
+     * 尝试获取本地读锁(共享)
+     * @param lockKey
+     * 锁键
+     * @param timeout
+     * 请求锁超时时间(小于0时一直等待)
+     * @param unit
+     * 时间单位
+     * @return 是否获得锁
+     */
+    public boolean tryReadLock(@Nonnull final String lockKey, final long timeout, @Nonnull final TimeUnit unit){
+        log.debug("tryReadLock(lockKey: {}, timeout: {}, unit: {})...", lockKey, timeout, unit);
+        return tryLock(lockKey, true, timeout, unit);
+    }
+
+    /**
+     * 尝试获取本地锁
+     * @param lockKey
+     * 锁键
+     * @param shared
+     * 是否共享(读锁)
+     * @param timeout
+     * 请求锁超时时间(小于0时一直等待)
+     * @param unit
+     * 时间单位
+     * @return 是否获得锁
+     */
+    private boolean tryLock(@Nonnull final String lockKey, final boolean shared, final long timeout, @Nonnull final TimeUnit unit){
+        final Entry entry = locks.compute(lockKey, (k, e) -> {
+            final Entry ret = e == null ? new Entry(fair) : e;
+            ret.refs++;
+            return ret;
+        });
+        final java.util.concurrent.locks.Lock lock = shared ? entry.lock.readLock() : entry.lock.writeLock();
+        boolean locked = false;
+        try {
+            if(timeout < 0){
+                lock.lockInterruptibly();
+                locked = true;
+            }else {
+                locked = lock.tryLock(timeout, unit);
+            }
+        }catch (InterruptedException e){
+            log.warn("tryLock-获取本地锁等待被中断:" + e.getMessage());
+            Thread.currentThread().interrupt();
+        }finally {
+            if(!locked){
+                release(lockKey);
+            }
+        }
+        return locked;
+    }
+
+    /**
+     * 释放本地锁(当前线程持有写锁时释放写锁,否则释放读锁)
+     * @param lockKey
+     * 锁键
+     */
+    public void unlock(@Nonnull final String lockKey){
+        log.debug("unlock(lockKey: {})...", lockKey);
+        final Entry entry = locks.get(lockKey);
+        if(entry == null){
+            return;
+        }
+        if(entry.lock.isWriteLockedByCurrentThread()){
+            entry.lock.writeLock().unlock();
+        }else if(entry.lock.getReadHoldCount() > 0){
+            entry.lock.readLock().unlock();
+        }else {
+            return;
+        }
+        release(lockKey);
+    }
+
+    /**
+     * 当前线程是否持有本地锁(排他)
+     * @param lockKey
+     * 锁键
+     * @return 是否持有
+     */
+    public boolean isHeldByCurrentThread(@Nonnull final String lockKey){
+        final Entry entry = locks.get(lockKey);
+        return entry != null && entry.lock.isWriteLockedByCurrentThread();
+    }
+
+    /**
+     * 减少锁对象的引用计数
+     * @param lockKey
+     * 锁键
+     */
+    private void release(@Nonnull final String lockKey){
+        locks.computeIfPresent(lockKey, (k, e) -> --e.refs <= 0 ? null : e);
+    }
+
+    /**
+     * 锁对象
+     */
+    private static class Entry {
+        /**
+         * 锁
+         */
+        private final ReentrantReadWriteLock lock;
+        /**
+         * 引用计数(在锁表的compute中维护)
+         */
+        private int refs;
+
+        Entry(final boolean fair){
+            this.lock = new ReentrantReadWriteLock(fair);
+        }
+    }
+}
@@ -22,8 +22,11 @@ public @interface Lock {
     String prefix() default "lock_";
 
     /**
-     * 过期时间(默认 5)
-     * @return 过期时间
+     * 锁的租期(默认 5)
+     * <p>
+     *     开启自动续期时,持有期间按租期自动续期,租期只决定持有节点宕机后锁的最长残留时间。
+     * </p>
+     * @return 锁的租期
      */
     int expire() default 5;
 
@@ -38,4 +41,67 @@ public @interface Lock {
      * @return 锁key分隔符
      */
     String delimiter() default ":";
+
+    /**
+     * 是否先获取进程内锁(默认 是)
+     * <p>
+     *     开启后同一节点上争抢同一锁键的线程先在本地排队,只有本地获胜的线程才去Redis争抢;
+     *     未配置Redis时始终使用进程内锁。
+     * </p>
+     * @return 是否先获取进程内锁
+     */
+    boolean local() default true;
+
+    /**
+     * 是否在持有期间自动续期(默认 是)
+     * @return 是否自动续期
+     */
+    boolean renew() default true;
+
+    /**
+     * 锁模式(默认 FAIL)
+     * @return 锁模式
+     */
+    LockMode mode() default LockMode.FAIL;
+
+    /**
+     * 请求锁的超时时间(毫秒)
+     * <p>
+     *     小于0时使用默认值: FAIL模式为 {@link RedisLock#TIME_OUT},其余模式一直等待。
+     * </p>
+     * @return 请求锁的超时时间
+     */
+    long waitTime() default -1;
+
+    /**
+     * 是否公平模式(默认 否)
+     * <p>
+     *     开启后等待者按到达顺序获得锁(本地锁同样按到达顺序排队),仅对单个锁键的 FAIL/WAIT/COALESCE 模式有效;
+     *     同一锁键的所有使用方须一致开启。
+     * </p>
+     * @return 是否公平模式
+     */
+    boolean fair() default false;
+
+    /**
+     * 等待锁时的初始退避间隔(毫秒,默认 -1)
+     * <p>
+     *     大于0时按指数退避(全抖动)重试: 第n次失败后在 [0, min(backoffMax, backoff * 2^(n-1))] 内随机等待,
+     *     竞争激烈时等待者的重试时间被打散;小于等于0时使用默认策略(订阅了释放通知时按带随机抖动的固定间隔兜底轮询)。
+     * </p>
+     * @return 初始退避间隔
+     */
+    long backoff() default -1;
+
+    /**
+     * 等待锁时的最大退避间隔(毫秒,默认 1000)
+     * @return 最大退避间隔
+     */
+    long backoffMax() default 1000;
+
+    /**
+     * 合并执行时执行结果在Redis中的保留时间(默认 5,单位同 timeUnit)
+     * @return 执行结果保留时间
+     */
+    int resultExpire() default 5;
 }
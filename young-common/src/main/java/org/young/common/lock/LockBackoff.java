@@ -0,0 +1,22 @@
+package org.young.common.lock;
+
+/**
+ * 等待锁时的退避策略
+ * <p>
+ *     每次加锁失败后按退避策略计算下一次重试前的等待时间;
+ *     订阅了锁释放通知时,等待期间收到释放通知会提前唤醒。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@FunctionalInterface
+public interface LockBackoff {
+
+    /**
+     * 计算下一次重试前的等待时间
+     * @param attempt
+     * 已失败的尝试次数(从1开始)
+     * @return 等待时间(纳秒)
+     */
+    long delay(final int attempt);
+}
@@ -2,6 +2,9 @@ package org.young.common.lock;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * 缓存键生成器接口
  *
@@ -17,4 +20,14 @@ public interface LockKeyGenerator {
      * @return 缓存key
      */
     String getLockKey(final ProceedingJoinPoint joinPoint);
+
+    /**
+     * 获取AOP参数,生成需要同时锁定的全部缓存key
+     * @param joinPoint
+     * AOP参数
+     * @return 缓存key集合
+     */
+    default List<String> getLockKeys(final ProceedingJoinPoint joinPoint){
+        return Collections.singletonList(getLockKey(joinPoint));
+    }
 }
@@ -0,0 +1,280 @@
+package org.young.common.lock;
+
+import com.google.common.base.Strings;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.expression.EvaluationContext;
+import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelCompilerMode;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.SpelParserConfiguration;
+import org.springframework.expression.spel.ast.BeanReference;
+import org.springframework.expression.spel.ast.ConstructorReference;
+import org.springframework.expression.spel.ast.TypeReference;
+import org.springframework.expression.spel.standard.SpelExpression;
+import org.springframework.expression.spel.standard.SpelExpressionParser;
+import org.springframework.expression.spel.support.SimpleEvaluationContext;
+import org.springframework.expression.spel.support.StandardEvaluationContext;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * 锁键生成计划
+ * <p>
+ *     按方法预先解析一次带有 {@link LockParam} 注解的参数位置、锁键前缀/分隔符,
+ *     并以编译模式解析SpEL表达式;表达式中的 {@code #参数名} 改写为 {@code #root},
+ *     生成锁键时以参数值为根对象在共享的只读上下文中求值,不再反射读取注解,也不再为每次调用创建求值上下文。
+ * </p>
+ * <p>
+ *     表达式中含有类型引用({@code T(...)},如静态方法调用)、构造函数({@code new ...})或Bean引用({@code @bean})时,
+ *     只读上下文不支持,此类表达式在每次求值时创建标准求值上下文(与原实现一致,未注册Bean解析器)。
+ * </p>
+ * <p>
+ *     锁参数值为空集合或空数组时拒绝生成锁键,避免退化为只有前缀的锁键而锁住整个前缀。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class LockKeyPlan {
+    /**
+     * SpEL表达式解析器(编译模式)
+     */
+    private static final SpelExpressionParser PARSER = new SpelExpressionParser(
+            new SpelParserConfiguration(SpelCompilerMode.MIXED, LockKeyPlan.class.getClassLoader())
+    );
+    /**
+     * 共享的只读求值上下文(线程安全,根对象为参数值)
+     */
+    private static final EvaluationContext CONTEXT = SimpleEvaluationContext.forReadOnlyDataBinding().withInstanceMethods().build();
+
+    /**
+     * 锁key的前缀
+     */
+    private final String prefix;
+    /**
+     * 锁key分隔符
+     */
+    private final String delimiter;
+    /**
+     * 锁参数的位置
+     */
+    private final int[] indexes;
+    /**
+     * 锁参数的SpEL表达式(未配置时为null)
+     */
+    private final Expression[] expressions;
+    /**
+     * 锁参数的SpEL表达式是否需要标准求值上下文
+     */
+    private final boolean[] standards;
+
+    /**
+     * 构造函数
+     * @param prefix
+     * 锁key的前缀
+     * @param delimiter
+     * 锁key分隔符
+     * @param indexes
+     * 锁参数的位置
+     * @param expressions
+     * 锁参数的SpEL表达式
+     * @param standards
+     * 锁参数的SpEL表达式是否需要标准求值上下文
+     */
+    private LockKeyPlan(final String prefix, final String delimiter, final int[] indexes, final Expression[] expressions, final boolean[] standards){
+        this.prefix = prefix;
+        this.delimiter = delimiter;
+        this.indexes = indexes;
+        this.expressions = expressions;
+        this.standards = standards;
+    }
+
+    /**
+     * 编译方法的锁键生成计划
+     * @param method
+     * 方法
+     * @param prefix
+     * 锁key的前缀
+     * @param delimiter
+     * 锁key分隔符
+     * @return 锁键生成计划
+     */
+    public static LockKeyPlan compile(@Nonnull final Method method, @Nonnull final String prefix, @Nonnull final String delimiter){
+        log.debug("compile(method: {}, prefix: {}, delimiter: {})...", method, prefix, delimiter);
+        final Parameter[] parameters = method.getParameters();
+        final List<Integer> indexes = new ArrayList<>(parameters.length);
+        final List<Expression> expressions = new ArrayList<>(parameters.length);
+        //解析方法中带有LockParam注解
+        for(int i = 0; i < parameters.length; i++){
+            final LockParam annotation = parameters[i].getAnnotation(LockParam.class);
+            if(annotation == null){
+                continue;
+            }
+            indexes.add(i);
+            expressions.add(Strings.isNullOrEmpty(annotation.name()) ? null : PARSER.parseExpression(toRoot(annotation.name(), parameters[i].getName())));
+        }
+        final int[] idx = new int[indexes.size()];
+        final boolean[] standards = new boolean[idx.length];
+        for(int i = 0; i < idx.length; i++){
+            idx[i] = indexes.get(i);
+            final Expression expression = expressions.get(i);
+            standards[i] = expression instanceof SpelExpression && requiresStandard(((SpelExpression) expression).getAST());
+        }
+        return new LockKeyPlan(prefix, delimiter, idx, expressions.toArray(new Expression[0]), standards);
+    }
+
+    /**
+     * 表达式是否需要标准求值上下文
+     * @param node
+     * 表达式语法树节点
+     * @return 含有类型引用、构造函数或Bean引用时返回true
+     */
+    private static boolean requiresStandard(@Nonnull final SpelNode node){
+        if(node instanceof TypeReference || node instanceof ConstructorReference || node instanceof BeanReference){
+            return true;
+        }
+        for(int i = 0; i < node.getChildCount(); i++){
+            if(requiresStandard(node.getChild(i))){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 表达式中的参数变量改写为根对象
+     * @param expression
+     * SpEL表达式
+     * @param name
+     * 参数名称
+     * @return 改写后的表达式
+     */
+    static String toRoot(@Nonnull final String expression, @Nonnull final String name){
+        return expression.replaceAll("#" + Pattern.quote(name) + "(?![\\w$])", "#root");
+    }
+
+    /**
+     * 生成锁键(集合或数组参数不展开)
+     * @param args
+     * 方法参数
+     * @return 锁键
+     */
+    public String getKey(@Nonnull final Object[] args){
+        return build(args, false).get(0);
+    }
+
+    /**
+     * 生成需要同时锁定的全部锁键
+     * <p>
+     *     锁参数值为集合或数组时按元素展开,多个集合参数时取笛卡尔积。
+     * </p>
+     * @param args
+     * 方法参数
+     * @return 锁键集合
+     * @throws IllegalArgumentException
+     * 锁参数值为空集合或空数组
+     */
+    public List<String> getKeys(@Nonnull final Object[] args){
+        return build(args, true);
+    }
+
+    /**
+     * 生成锁键
+     * @param args
+     * 方法参数
+     * @param expand
+     * 是否展开集合或数组参数
+     * @return 锁键集合
+     */
+    private List<String> build(@Nonnull final Object[] args, final boolean expand){
+        if(indexes.length == 0){
+            return Collections.singletonList(prefix);
+        }
+        List<String> keys = Collections.singletonList(prefix);
+        for(int i = 0; i < indexes.length; i++){
+            final Object value = evaluate(i, args[indexes[i]]);
+            if(!expand || !(value instanceof Collection || (value != null && value.getClass().isArray()))){
+                //单个值
+                final String item = value == null ? null : value.toString();
+                if(!Strings.isNullOrEmpty(item)){
+                    keys = append(keys, Collections.singletonList(item));
+                }
+                continue;
+            }
+            final List<String> items = toItems(value);
+            if(items.isEmpty()){
+                throw new IllegalArgumentException("lock param is empty: " + prefix);
+            }
+            keys = append(keys, items);
+        }
+        return keys;
+    }
+
+    /**
+     * 锁键追加锁键数据(多个数据时取笛卡尔积)
+     * @param keys
+     * 锁键集合
+     * @param items
+     * 锁键数据集合
+     * @return 追加后的锁键集合
+     */
+    private List<String> append(@Nonnull final List<String> keys, @Nonnull final List<String> items){
+        final List<String> expanded = new ArrayList<>(keys.size() * items.size());
+        for(String key : keys){
+            for(String item : items){
+                expanded.add(key.length() > prefix.length() ? key + delimiter + item : key + item);
+            }
+        }
+        return expanded;
+    }
+
+    /**
+     * 锁参数值展开为锁键数据
+     * @param value
+     * 锁参数值(集合或数组)
+     * @return 锁键数据集合
+     */
+    private static List<String> toItems(final Object value){
+        final List<String> items = new ArrayList<>();
+        if(value instanceof Collection){
+            for(Object item : (Collection<?>) value){
+                addItem(items, item);
+            }
+        }else {
+            for(int i = 0, len = Array.getLength(value); i < len; i++){
+                addItem(items, Array.get(value, i));
+            }
+        }
+        return items;
+    }
+
+    private static void addItem(@Nonnull final List<String> items, final Object item){
+        final String value = item == null ? null : item.toString();
+        if(!Strings.isNullOrEmpty(value)){
+            items.add(value);
+        }
+    }
+
+    /**
+     * 计算锁参数值
+     * @param i
+     * 锁参数序号
+     * @param arg
+     * 参数对象
+     * @return 锁参数值
+     */
+    private Object evaluate(final int i, final Object arg){
+        if(arg == null || expressions[i] == null){
+            return arg;
+        }
+        return expressions[i].getValue(standards[i] ? new StandardEvaluationContext() : CONTEXT, arg);
+    }
+}
@@ -0,0 +1,275 @@
+package org.young.common.lock;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.metrics.Histogram;
+import org.young.common.protocol.Constants;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 分布式锁统计
+ * <p>
+ *     按锁前缀统计等待时间、持有时间(微秒)的分布以及加锁成功、失败、重试次数,
+ *     并登记本节点当前持有的分布式锁,用于定位生产环境中的锁竞争热点。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class LockMetrics {
+    /**
+     * 锁前缀-统计
+     */
+    private static final ConcurrentMap<String, Stats> STATS = new ConcurrentHashMap<>();
+    /**
+     * 锁键及锁值-本节点持有的锁
+     */
+    private static final ConcurrentMap<String, HeldLock> HELD = new ConcurrentHashMap<>();
+    /**
+     * 当前线程自上次读取以来的加锁重试次数
+     */
+    private static final ThreadLocal<int[]> RETRIES = ThreadLocal.withInitial(() -> new int[1]);
+
+    private LockMetrics(){
+
+    }
+
+    /**
+     * 获取锁前缀的统计
+     * @param prefix
+     * 锁前缀
+     * @return 统计
+     */
+    public static Stats getStats(@Nonnull final String prefix){
+        return STATS.computeIfAbsent(prefix, k -> new Stats());
+    }
+
+    /**
+     * 获取全部锁前缀的统计快照
+     * @return 锁前缀-统计快照
+     */
+    public static Map<String, Stats.Snapshot> snapshot(){
+        final Map<String, Stats.Snapshot> ret = new TreeMap<>();
+        STATS.forEach((prefix, stats) -> ret.put(prefix, stats.snapshot()));
+        return ret;
+    }
+
+    /**
+     * 累计当前线程的加锁重试次数
+     * @param retries
+     * 重试次数
+     */
+    static void retried(final int retries){
+        if(retries > 0){
+            RETRIES.get()[0] += retries;
+        }
+    }
+
+    /**
+     * 读取并清零当前线程的加锁重试次数
+     * @return 重试次数
+     */
+    public static int takeRetries(){
+        final int[] retries = RETRIES.get();
+        final int ret = retries[0];
+        retries[0] = 0;
+        return ret;
+    }
+
+    /**
+     * 登记本节点持有的锁
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKey
+     * 锁键
+     * @param lockValue
+     * 锁值
+     */
+    static void held(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String lockKey, @Nonnull final String lockValue){
+        HELD.put(lockKey + "\n" + lockValue, new HeldLock(redisTemplate, lockKey));
+    }
+
+    /**
+     * 注销本节点持有的锁
+     * @param lockKey
+     * 锁键
+     * @param lockValue
+     * 锁值
+     */
+    static void released(@Nonnull final String lockKey, @Nonnull final String lockValue){
+        HELD.remove(lockKey + "\n" + lockValue);
+    }
+
+    /**
+     * 获取本节点当前持有的锁(按持有时间由长到短排序,并查询锁键的剩余有效时间)
+     * @return 持有的锁集合
+     */
+    public static List<HeldLock> getHeldLocks(){
+        final List<HeldLock> ret = new ArrayList<>(HELD.values());
+        ret.sort((a, b) -> Long.compare(a.acquiredAt, b.acquiredAt));
+        ret.forEach(HeldLock::refresh);
+        return ret;
+    }
+
+    /**
+     * 锁前缀的统计
+     */
+    public static class Stats {
+        /**
+         * 等待时间(微秒)
+         */
+        @Getter
+        private final Histogram waitTime = new Histogram();
+        /**
+         * 持有时间(微秒)
+         */
+        @Getter
+        private final Histogram holdTime = new Histogram();
+        /**
+         * 加锁成功次数
+         */
+        private final LongAdder successes = new LongAdder();
+        /**
+         * 加锁失败次数
+         */
+        private final LongAdder failures = new LongAdder();
+        /**
+         * 加锁重试次数
+         */
+        private final LongAdder retries = new LongAdder();
+        /**
+         * 合并执行次数(锁已被其他线程或节点持有,等待共享其执行结果,不计入加锁失败)
+         */
+        private final LongAdder coalesced = new LongAdder();
+
+        /**
+         * 记录一次加锁
+         * @param success
+         * 是否成功
+         * @param waitNanos
+         * 等待时间(纳秒)
+         * @param retries
+         * 重试次数
+         */
+        public void acquired(final boolean success, final long waitNanos, final int retries){
+            (success ? this.successes : this.failures).increment();
+            this.retries.add(retries);
+            this.waitTime.record(TimeUnit.NANOSECONDS.toMicros(waitNanos));
+        }
+
+        /**
+         * 记录一次合并执行
+         */
+        public void coalesced(){
+            this.coalesced.increment();
+        }
+
+        /**
+         * 记录一次解锁
+         * @param holdNanos
+         * 持有时间(纳秒)
+         */
+        public void released(final long holdNanos){
+            this.holdTime.record(TimeUnit.NANOSECONDS.toMicros(holdNanos));
+        }
+
+        /**
+         * 生成统计快照
+         * @return 统计快照
+         */
+        public Snapshot snapshot(){
+            return new Snapshot(this);
+        }
+
+        /**
+         * 统计快照
+         */
+        @Getter
+        @ToString
+        public static class Snapshot {
+            private final long successes;
+            private final long failures;
+            private final long retries;
+            private final long coalesced;
+            private final Histogram.Snapshot waitTime;
+            private final Histogram.Snapshot holdTime;
+
+            Snapshot(final Stats stats){
+                this.successes = stats.successes.sum();
+                this.failures = stats.failures.sum();
+                this.retries = stats.retries.sum();
+                this.coalesced = stats.coalesced.sum();
+                this.waitTime = stats.waitTime.snapshot();
+                this.holdTime = stats.holdTime.snapshot();
+            }
+        }
+    }
+
+    /**
+     * 本节点持有的锁
+     */
+    @ToString(exclude = "redisTemplate")
+    public static class HeldLock {
+        private final RedisTemplate<Object, Object> redisTemplate;
+        /**
+         * 锁键
+         */
+        @Getter
+        private final String lockKey;
+        /**
+         * 持有线程
+         */
+        @Getter
+        private final String thread;
+        /**
+         * 获得锁的时间(毫秒)
+         */
+        @Getter
+        private final long acquiredAt;
+        /**
+         * 锁键的剩余有效时间(毫秒,-2:锁键已不存在)
+         */
+        @Getter
+        private volatile long ttl = -1;
+
+        HeldLock(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String lockKey){
+            this.redisTemplate = redisTemplate;
+            this.lockKey = lockKey;
+            this.thread = Thread.currentThread().getName();
+            this.acquiredAt = System.currentTimeMillis();
+        }
+
+        /**
+         * 已持有的时间(毫秒)
+         * @return 已持有的时间
+         */
+        public long getHeldMillis(){
+            return System.currentTimeMillis() - acquiredAt;
+        }
+
+        /**
+         * 查询锁键的剩余有效时间
+         */
+        private void refresh(){
+            try {
+                final byte[] key = lockKey.getBytes(Constants.CHARSET);
+                final Long ret = redisTemplate.execute((RedisCallback<Long>) connection -> connection.pTtl(key));
+                this.ttl = ret == null ? -1 : ret;
+            }catch (Throwable ex){
+                log.warn("refresh-查询锁键剩余有效时间失败(lockKey: {}):{}", lockKey, ex.getMessage());
+            }
+        }
+    }
+}
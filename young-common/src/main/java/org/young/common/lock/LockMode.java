@@ -0,0 +1,33 @@
+package org.young.common.lock;
+
+/**
+ * 锁模式
+ *
+ * @author jeasonyoung
+ */
+public enum LockMode {
+    /**
+     * 锁被占用时在请求锁超时时间内未获得锁则失败(抛出异常)
+     */
+    FAIL,
+    /**
+     * 锁被占用时等待锁释放后再执行
+     */
+    WAIT,
+    /**
+     * 合并执行: 锁被占用时等待持有者执行完成,直接返回持有者的执行结果
+     * <p>
+     *     同一节点内通过共享执行结果合并,跨节点通过Redis中短期保存的执行结果合并;
+     *     仅适用于幂等的操作。
+     * </p>
+     */
+    COALESCE,
+    /**
+     * 读锁: 读锁之间互不阻塞,与写锁互斥,锁被占用时等待锁释放
+     */
+    READ,
+    /**
+     * 写锁: 与任何读锁、写锁互斥,锁被占用时等待锁释放
+     */
+    WRITE
+}
@@ -4,6 +4,9 @@ import java.lang.annotation.*;
 
 /**
  * 锁key的参数
+ * <p>
+ *     参数值(或SpEL表达式的结果)为集合或数组时,每个元素生成一个锁键,同时锁定全部锁键(多个集合参数时取笛卡尔积)。
+ * </p>
  *
  * @author yangyong young1982@foxmail.com
  * date 2018/9/10 17:57
@@ -15,6 +18,11 @@ import java.lang.annotation.*;
 public @interface LockParam {
     /**
      * 字段名称(支持spel表达式)
+     * <p>
+     *     以 {@code #参数名} 引用参数值;属性读取及实例方法调用在共享的只读上下文中求值,
+     *     含有 {@code T(...)}(静态方法调用)或 {@code new ...} 的表达式每次求值时创建标准求值上下文,开销较大;
+     *     不支持Bean引用({@code @bean})。
+     * </p>
      * @return 字段名称
      */
     String name() default "";
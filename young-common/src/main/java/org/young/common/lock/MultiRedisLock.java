@@ -0,0 +1,297 @@
+package org.young.common.lock;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis分布式多键锁
+ * <p>
+ *     需要同时锁定多个资源时(如用户及其登录记录),将锁键排序去重后在一次lua脚本调用中原子地全部加锁,
+ *     任意一个锁键被占用则全部不加锁,避免逐个加锁带来的多次请求和死锁风险。
+ * </p>
+ * <p>
+ *     解锁同样在一次lua脚本调用中完成,只删除锁值与本次加锁口令串一致的锁键,语义与 {@link RedisLock#UNLOCK_LUA} 一致。
+ * </p>
+ * <p>
+ *     加锁成功后各锁键登记为当前线程持有,同一线程内嵌套的单键锁 {@link RedisLock} 及锁键相同的多键锁可重入,须按嵌套顺序释放;
+ *     当前线程只持有其中部分锁键时不等待,直接加锁失败,避免等待自己持有的锁直至超时。
+ * </p>
+ * <p>
+ *     Redis Cluster 下全部锁键须位于同一哈希槽,否则脚本执行失败(CROSSSLOT);
+ *     锁键须使用相同的哈希标签,如 lock_{order}:1、lock_{order}:2。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+@Data
+public class MultiRedisLock implements DistributedLock {
+    /**
+     * 加锁的lua脚本
+     * <p>
+     *     KEYS: 锁键; ARGV[1]: 锁值; ARGV[2]: 锁的有效时间(毫秒)。
+     * </p>
+     */
+    public static final String LOCK_LUA;
+    /**
+     * 解锁的lua脚本(解锁成功后发布锁释放通知)
+     */
+    public static final String UNLOCK_LUA;
+
+    /**
+     * 加锁脚本
+     */
+    private static final RedisScriptRegistry.Script LOCK_SCRIPT;
+    /**
+     * 解锁脚本
+     */
+    private static final RedisScriptRegistry.Script UNLOCK_SCRIPT;
+
+    static {
+        LOCK_LUA = "for i = 1, #KEYS do " +
+                "    if redis.call(\"exists\",KEYS[i]) == 1 " +
+                "    then " +
+                "        return 0 " +
+                "    end " +
+                "end " +
+                "for i = 1, #KEYS do " +
+                "    redis.call(\"set\",KEYS[i],ARGV[1],\"PX\",ARGV[2]) " +
+                "end " +
+                "return 1 ";
+        UNLOCK_LUA = "local n = 0 " +
+                "for i = 1, #KEYS do " +
+                "    if redis.call(\"get\",KEYS[i]) == ARGV[1] " +
+                "    then " +
+                "        redis.call(\"del\",KEYS[i]) " +
+                "        redis.call(\"publish\",\"" + RedisLockNotifier.CHANNEL_PREFIX + "\" .. KEYS[i],KEYS[i]) " +
+                "        n = n + 1 " +
+                "    end " +
+                "end " +
+                "return n ";
+        LOCK_SCRIPT = RedisScriptRegistry.register(LOCK_LUA);
+        UNLOCK_SCRIPT = RedisScriptRegistry.register(UNLOCK_LUA);
+    }
+
+    /**
+     * 锁标记
+     */
+    private final AtomicBoolean locked = new AtomicBoolean(false);
+    /**
+     * 各锁键的持有记录(与 lockKeys 一一对应)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final List<RedisLock.Hold> holds = new ArrayList<>();
+
+    /**
+     * 锁的有效时间(s)
+     */
+    private int expireTime = RedisLock.EXPIRE;
+    /**
+     * 请求锁的超时时间(ms)
+     */
+    private long timeOut = RedisLock.TIME_OUT;
+    /**
+     * 是否由看门狗自动续期
+     */
+    private boolean renew = false;
+    /**
+     * 等待锁时的退避策略(为null时使用默认策略)
+     */
+    private LockBackoff backoff;
+
+    /**
+     * 锁标志对应的key(已排序去重)
+     */
+    private final List<String> lockKeys;
+    /**
+     * 锁标志对应的值
+     */
+    private String lockValue;
+    /**
+     * redisTemplate
+     */
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    /**
+     * 使用默认的锁过期时间和请求锁的超时时间
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKeys
+     * 锁的key集合(Redis的Key)
+     */
+    public MultiRedisLock(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Collection<String> lockKeys){
+        log.debug("MultiRedisLock(redisTemplate: {}, lockKeys: {})...", redisTemplate, lockKeys);
+        Assert.notEmpty(lockKeys, "'lockKeys'不能为空!");
+        this.redisTemplate = redisTemplate;
+        this.lockKeys = new ArrayList<>(new TreeSet<>(lockKeys));
+    }
+
+    /**
+     * 指定锁的过期时间和请求锁的超时时间
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKeys
+     * 锁的key集合(Redis的Key)
+     * @param expireTime
+     * 锁的过期时间(单位：秒)
+     * @param timeOut
+     * 请求锁的超时时间(单位：毫秒)
+     */
+    public MultiRedisLock(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Collection<String> lockKeys, int expireTime, long timeOut){
+        this(redisTemplate, lockKeys);
+        log.debug("MultiRedisLock(expireTime: {}, timeOut: {})..", expireTime, timeOut);
+        this.setExpireTime(expireTime);
+        this.setTimeOut(timeOut);
+    }
+
+    @Override
+    public boolean tryLock(){
+        log.debug("tryLock...");
+        return acquire(TimeUnit.MILLISECONDS.toNanos(timeOut));
+    }
+
+    @Override
+    public boolean lock(){
+        log.debug("lock...");
+        final Boolean reentered = reenter();
+        if(reentered != null){
+            return reentered;
+        }
+        this.lockValue = UUID.randomUUID().toString();
+        if(eval(LOCK_SCRIPT, lockValue, String.valueOf(TimeUnit.SECONDS.toMillis(expireTime))) > 0){
+            held();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean lockBlock(){
+        log.debug("lockBlock...");
+        return acquire(-1);
+    }
+
+    @Override
+    public Boolean unlock(){
+        log.debug("unlock...");
+        if(locked.compareAndSet(true, false)){
+            boolean released = true;
+            for(int i = 0; i < holds.size(); i++){
+                if(!RedisLock.release(lockKeys.get(i), holds.get(i))){
+                    released = false;
+                }
+            }
+            holds.clear();
+            if(!released){
+                //重入锁未完全释放
+                return true;
+            }
+            if(renew){
+                lockKeys.forEach(key -> RedisLockWatchdog.unregister(key, lockValue));
+            }
+            lockKeys.forEach(key -> LockMetrics.released(key, lockValue));
+            return eval(UNLOCK_SCRIPT, lockValue) > 0;
+        }
+        return true;
+    }
+
+    /**
+     * 循环获取锁(等待期间订阅任意锁键的释放通知)
+     * @param timeout
+     * 请求锁超时时间(纳秒,小于0时一直等待)
+     * @return 是否成功获得锁
+     */
+    private boolean acquire(final long timeout){
+        final Boolean reentered = reenter();
+        if(reentered != null){
+            return reentered;
+        }
+        //生成随机key值
+        this.lockValue = UUID.randomUUID().toString();
+        final String expire = String.valueOf(TimeUnit.SECONDS.toMillis(expireTime));
+        if(RedisLockNotifier.acquire(redisTemplate, lockKeys, timeout, backoff, () -> eval(LOCK_SCRIPT, lockValue, expire) > 0)){
+            held();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 当前线程已持有锁键时重入
+     * @return null: 未持有任何锁键; true: 以同一锁值持有全部锁键,重入成功; false: 只持有部分锁键,加锁失败
+     */
+    private Boolean reenter(){
+        final List<RedisLock.Hold> current = new ArrayList<>(lockKeys.size());
+        for(String key : lockKeys){
+            final RedisLock.Hold hold = RedisLock.currentHold(key);
+            if(hold != null){
+                current.add(hold);
+            }
+        }
+        if(current.isEmpty()){
+            return null;
+        }
+        final String value = current.get(0).lockValue;
+        if(current.size() < lockKeys.size() || current.stream().anyMatch(hold -> !hold.lockValue.equals(value))){
+            log.warn("reenter(lockKeys: {})-当前线程已持有部分锁键,不能加锁!", lockKeys);
+            return false;
+        }
+        current.forEach(hold -> hold.count.incrementAndGet());
+        this.holds.addAll(current);
+        this.lockValue = value;
+        this.locked.set(true);
+        return true;
+    }
+
+    /**
+     * 记录加锁成功
+     */
+    private void held(){
+        lockKeys.forEach(key -> holds.add(RedisLock.hold(key, lockValue)));
+        this.locked.set(true);
+        lockKeys.forEach(key -> LockMetrics.held(redisTemplate, key, lockValue));
+        if(renew){
+            final long leaseMillis = TimeUnit.SECONDS.toMillis(expireTime);
+            lockKeys.forEach(key -> RedisLockWatchdog.register(redisTemplate, key, lockValue, leaseMillis));
+        }
+    }
+
+    /**
+     * 以全部锁键执行lua脚本
+     * @param script
+     * lua脚本
+     * @param args
+     * 脚本参数
+     * @return 脚本返回值
+     */
+    private long eval(@Nonnull final RedisScriptRegistry.Script script, @Nonnull final String... args){
+        final int n = lockKeys.size();
+        final byte[][] keysAndArgs = new byte[n + args.length][];
+        for(int i = 0; i < n; i++){
+            keysAndArgs[i] = lockKeys.get(i).getBytes(Constants.CHARSET);
+        }
+        for(int i = 0; i < args.length; i++){
+            keysAndArgs[n + i] = args[i].getBytes(Constants.CHARSET);
+        }
+        final Long ret = RedisScriptRegistry.eval(redisTemplate, script, ReturnType.INTEGER, n, keysAndArgs);
+        return ret == null ? 0 : ret;
+    }
+}
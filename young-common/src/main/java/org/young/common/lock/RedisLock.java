@@ -1,6 +1,9 @@
 package org.young.common.lock;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.connection.RedisStringCommands;
 import org.springframework.data.redis.connection.ReturnType;
@@ -9,12 +12,16 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.util.Assert;
 import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
 
 import javax.annotation.Nonnull;
-import java.util.Random;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Redis分布式锁
@@ -39,17 +46,19 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *     如果服务器返回 OK ，那么这个客户端获得锁。
  *     如果服务器返回 NIL ，那么客户端获取锁失败，可以在稍后再重试。
  * </p>
+ * 锁可在同一线程内重入(仅记录持有次数,不访问Redis),开启续期后由 {@link RedisLockWatchdog} 在持有期间自动续期。
+ * <p>
+ *     公平模式下等待者按到达顺序登记在有序集合 lockKey:queue 中,只有队首的等待者可以加锁;
+ *     等待者每次尝试时在 lockKey:alive 中刷新存活期限,超过期限未刷新(如等待节点宕机)的等待者被移出队列。
+ *     同一锁键的所有使用方都须使用公平模式,否则非公平的加锁方可以插队。
+ * </p>
  *
  * @author yangyong young1982@foxmail.com
  * date 2018/9/10 14:41
  */
 @Slf4j
 @Data
-public class RedisLock {
-    /**
-     * 随机数产生器
-     */
-    private static final Random RANDOM = new Random();
+public class RedisLock implements DistributedLock {
     /**
      * 默认锁的有效时间(s)
      */
@@ -57,26 +66,111 @@ public class RedisLock {
     /**
      * 默认请求锁的超时时间(ms 毫秒)
      */
-    private static final long TIME_OUT = 100;
+    public static final long TIME_OUT = 100;
 
     /**
-     * 解锁的lua脚本
+     * 解锁的lua脚本(解锁成功后发布锁释放通知)
      */
     public static final String UNLOCK_LUA;
+    /**
+     * 公平模式加锁的lua脚本
+     * <p>
+     *     KEYS[1]: 锁键; KEYS[2]: 等待队列; KEYS[3]: 等待者存活期限;
+     *     ARGV[1]: 锁值; ARGV[2]: 锁的有效时间(毫秒); ARGV[3]: 等待者存活期(毫秒)。
+     *     排队顺序及等待者存活期限使用Redis服务端时间,不受各节点时钟偏差影响。
+     * </p>
+     */
+    public static final String FAIR_LOCK_LUA;
+    /**
+     * 公平模式放弃等待的lua脚本(移出等待队列并唤醒其余等待者)
+     */
+    public static final String FAIR_CANCEL_LUA;
+    /**
+     * 公平模式等待者存活期(ms 毫秒),等待者的重试间隔不超过其四分之一
+     */
+    private static final long FAIR_WAITER_TTL = 2000;
+    /**
+     * 等待队列键后缀
+     */
+    private static final String QUEUE_SUFFIX = ":queue";
+    /**
+     * 等待者存活期限键后缀
+     */
+    private static final String ALIVE_SUFFIX = ":alive";
+
+    /**
+     * 解锁脚本
+     */
+    private static final RedisScriptRegistry.Script UNLOCK_SCRIPT;
+    /**
+     * 公平模式加锁脚本
+     */
+    private static final RedisScriptRegistry.Script FAIR_LOCK_SCRIPT;
+    /**
+     * 公平模式放弃等待脚本
+     */
+    private static final RedisScriptRegistry.Script FAIR_CANCEL_SCRIPT;
 
     static {
         UNLOCK_LUA = "if redis.call(\"get\",KEYS[1]) == ARGV[1] " +
                 "then " +
-                "    return redis.call(\"del\",KEYS[1]) " +
+                "    redis.call(\"del\",KEYS[1]) " +
+                "    redis.call(\"publish\",\"" + RedisLockNotifier.CHANNEL_PREFIX + "\" .. KEYS[1],KEYS[1]) " +
+                "    return 1 " +
                 "else " +
                 "    return 0 " +
                 "end ";
+        FAIR_LOCK_LUA = "redis.replicate_commands() " +
+                "local time = redis.call(\"time\") " +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+                "local dead = redis.call(\"zrangebyscore\",KEYS[3],\"-inf\",now) " +
+                "for i = 1, #dead do " +
+                "    redis.call(\"zrem\",KEYS[2],dead[i]) " +
+                "end " +
+                "redis.call(\"zremrangebyscore\",KEYS[3],\"-inf\",now) " +
+                "redis.call(\"zadd\",KEYS[2],\"NX\",now,ARGV[1]) " +
+                "redis.call(\"zadd\",KEYS[3],now + tonumber(ARGV[3]),ARGV[1]) " +
+                "local ret = 0 " +
+                "if redis.call(\"zrange\",KEYS[2],0,0)[1] == ARGV[1] and redis.call(\"exists\",KEYS[1]) == 0 " +
+                "then " +
+                "    redis.call(\"set\",KEYS[1],ARGV[1],\"PX\",ARGV[2]) " +
+                "    redis.call(\"zrem\",KEYS[2],ARGV[1]) " +
+                "    redis.call(\"zrem\",KEYS[3],ARGV[1]) " +
+                "    ret = 1 " +
+                "end " +
+                "if redis.call(\"zcard\",KEYS[2]) > 0 " +
+                "then " +
+                "    redis.call(\"pexpire\",KEYS[2],ARGV[3]) " +
+                "    redis.call(\"pexpire\",KEYS[3],ARGV[3]) " +
+                "end " +
+                "return ret ";
+        FAIR_CANCEL_LUA = "if redis.call(\"zrem\",KEYS[2],ARGV[1]) == 1 " +
+                "then " +
+                "    redis.call(\"zrem\",KEYS[3],ARGV[1]) " +
+                "    redis.call(\"publish\",\"" + RedisLockNotifier.CHANNEL_PREFIX + "\" .. KEYS[1],KEYS[1]) " +
+                "    return 1 " +
+                "end " +
+                "return 0 ";
+        UNLOCK_SCRIPT = RedisScriptRegistry.register(UNLOCK_LUA);
+        FAIR_LOCK_SCRIPT = RedisScriptRegistry.register(FAIR_LOCK_LUA);
+        FAIR_CANCEL_SCRIPT = RedisScriptRegistry.register(FAIR_CANCEL_LUA);
     }
 
+    /**
+     * 当前线程持有的锁(锁键-持有记录),用于锁重入
+     */
+    private static final ThreadLocal<Map<String, Hold>> HOLDS = ThreadLocal.withInitial(HashMap::new);
+
     /**
      * 锁标记
      */
     private final AtomicBoolean locked = new AtomicBoolean(false);
+    /**
+     * 本实例对应的持有记录
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private Hold hold;
 
     /**
      * 锁的有效时间(s)
@@ -86,6 +180,18 @@ public class RedisLock {
      * 请求锁的超时时间(ms)
      */
     private long timeOut = TIME_OUT;
+    /**
+     * 是否由看门狗自动续期(持有期间按锁的有效时间续期)
+     */
+    private boolean renew = false;
+    /**
+     * 是否公平模式(按到达顺序加锁)
+     */
+    private boolean fair = false;
+    /**
+     * 等待锁时的退避策略(为null时使用默认策略)
+     */
+    private LockBackoff backoff;
 
     /**
      * 锁标志对应的key
@@ -165,37 +271,32 @@ public class RedisLock {
      * 尝试获取锁 超时返回
      * @return 返回获取锁的结果
      */
+    @Override
     public boolean tryLock(){
         log.debug("tryLock...");
-        //生成随机key值
-        this.lockValue = UUID.randomUUID().toString();
         //请求锁超时时间,纳秒
-        final long timeout = timeOut * 1000000;
-        //系统当前时间,纳秒
-        final long nowTime = System.nanoTime();
-        while ((System.nanoTime() - nowTime) < timeout){
-            if(set(lockKey, lockValue, expireTime)){
-                locked.set(true);
-                //上锁成功，结束请求
-                return true;
-            }
-            //每次请求等待一段时间
-            sleep();
-        }
-        return locked.get();
+        return acquire(TimeUnit.MILLISECONDS.toNanos(timeOut));
     }
 
     /**
      * 获取锁
      * @return 获取锁结果
      */
+    @Override
     public boolean lock(){
         log.debug("lock...");
+        if(fair){
+            return acquire(0);
+        }
+        //当前线程已持有该锁
+        if(reenter()){
+            return true;
+        }
         //生成随机key值
         this.lockValue = UUID.randomUUID().toString();
         //获取锁
         if(set(lockKey, lockValue, expireTime)){
-            locked.set(true);
+            held();
             //上锁成功
             return true;
         }
@@ -206,19 +307,84 @@ public class RedisLock {
      * 以阻塞方式的获取锁
      * @return 是否成功获得锁
      */
+    @Override
     public boolean lockBlock(){
         log.debug("lockBlock...");
+        return acquire(-1);
+    }
+
+    /**
+     * 循环获取锁
+     * @param timeout
+     * 请求锁超时时间(纳秒,小于0时一直等待)
+     * @return 是否成功获得锁
+     */
+    private boolean acquire(final long timeout){
+        //当前线程已持有该锁
+        if(reenter()){
+            return true;
+        }
         //生成随机key值
         this.lockValue = UUID.randomUUID().toString();
-        while (true){
-            if(set(lockKey, lockValue, expireTime)){
-                locked.set(true);
-                //上锁成功，结束请求
-                return true;
+        if(fair){
+            return acquireFair(timeout);
+        }
+        if(RedisLockNotifier.acquire(redisTemplate, Collections.singletonList(lockKey), timeout, backoff,
+                () -> Boolean.TRUE.equals(set(lockKey, lockValue, expireTime)))){
+            held();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 公平模式循环获取锁
+     * @param timeout
+     * 请求锁超时时间(纳秒,小于0时一直等待)
+     * @return 是否成功获得锁
+     */
+    private boolean acquireFair(final long timeout){
+        final String lease = String.valueOf(TimeUnit.SECONDS.toMillis(expireTime)),
+                     ttl = String.valueOf(FAIR_WAITER_TTL);
+        //重试间隔不超过等待者存活期的四分之一,避免排队中被移出队列
+        final long maxDelay = TimeUnit.MILLISECONDS.toNanos(FAIR_WAITER_TTL / 4);
+        final LockBackoff policy = backoff == null ? null : attempt -> Math.min(backoff.delay(attempt), maxDelay);
+        boolean success = false;
+        try {
+            success = RedisLockNotifier.acquire(redisTemplate, Collections.singletonList(lockKey), timeout, policy, () -> {
+                final Long ret = evalFair(FAIR_LOCK_SCRIPT, lease, ttl);
+                return ret != null && ret > 0;
+            });
+        }finally {
+            if(!success){
+                //放弃等待,移出等待队列
+                evalFair(FAIR_CANCEL_SCRIPT);
             }
-            //每次请求等待一段时间
-            sleep();
         }
+        if(success){
+            held();
+        }
+        return success;
+    }
+
+    /**
+     * 执行公平模式的lua脚本
+     * @param script
+     * lua脚本
+     * @param args
+     * 锁值之后的脚本参数
+     * @return 脚本返回值
+     */
+    private Long evalFair(@Nonnull final RedisScriptRegistry.Script script, @Nonnull final String... args){
+        final byte[][] keysAndArgs = new byte[4 + args.length][];
+        keysAndArgs[0] = lockKey.getBytes(Constants.CHARSET);
+        keysAndArgs[1] = (lockKey + QUEUE_SUFFIX).getBytes(Constants.CHARSET);
+        keysAndArgs[2] = (lockKey + ALIVE_SUFFIX).getBytes(Constants.CHARSET);
+        keysAndArgs[3] = lockValue.getBytes(Constants.CHARSET);
+        for(int i = 0; i < args.length; i++){
+            keysAndArgs[4 + i] = args[i].getBytes(Constants.CHARSET);
+        }
+        return RedisScriptRegistry.eval(redisTemplate, script, ReturnType.INTEGER, 3, keysAndArgs);
     }
 
     /**
@@ -231,20 +397,70 @@ public class RedisLock {
      *     不使用 DEL 命令来释放锁，而是发送一个 Lua 脚本，这个脚本只在客户端传入的值和键的口令串相匹配时，才对键进行删除
      *     这两个改动可以防止持有过期锁的客户端误删现有锁的情况出现。
      * </p>
+     * <p>
+     *     重入的锁只减少持有次数,最外层解锁时才释放Redis中的锁。
+     * </p>
      * @return 解锁结果
      */
+    @Override
     public Boolean unlock(){
         log.debug("unlock...");
         //只有加锁成功并且锁还有效才去释放锁
-        if(locked.get()){
-            final byte[] lua = UNLOCK_LUA.getBytes(Constants.CHARSET),
-                         key = lockKey.getBytes(Constants.CHARSET),
+        if(locked.compareAndSet(true, false)){
+            if(hold != null && hold.count.decrementAndGet() > 0){
+                //重入锁未完全释放
+                return true;
+            }
+            if(hold != null){
+                hold.released = true;
+                HOLDS.get().remove(lockKey, hold);
+            }
+            if(renew){
+                RedisLockWatchdog.unregister(lockKey, lockValue);
+            }
+            LockMetrics.released(lockKey, lockValue);
+            final byte[] key = lockKey.getBytes(Constants.CHARSET),
                          value = lockValue.getBytes(Constants.CHARSET);
-            return redisTemplate.execute((RedisCallback<Boolean>)connection-> connection.eval(lua, ReturnType.BOOLEAN, 1, key, value));
+            return RedisScriptRegistry.eval(redisTemplate, UNLOCK_SCRIPT, ReturnType.BOOLEAN, 1, key, value);
+        }
+        return true;
+    }
+
+    /**
+     * 当前线程已持有该锁时增加持有次数
+     * @return 是否重入
+     */
+    private boolean reenter(){
+        final Map<String, Hold> holds = HOLDS.get();
+        final Hold current = holds.get(lockKey);
+        if(current == null){
+            return false;
         }
+        if(current.released){
+            //已在其他线程中释放
+            holds.remove(lockKey);
+            return false;
+        }
+        current.count.incrementAndGet();
+        this.hold = current;
+        this.lockValue = current.lockValue;
+        this.locked.set(true);
         return true;
     }
 
+    /**
+     * 记录当前线程持有该锁
+     */
+    private void held(){
+        this.hold = new Hold(lockValue);
+        HOLDS.get().put(lockKey, hold);
+        this.locked.set(true);
+        LockMetrics.held(redisTemplate, lockKey, lockValue);
+        if(renew){
+            RedisLockWatchdog.register(redisTemplate, lockKey, lockValue, TimeUnit.SECONDS.toMillis(expireTime));
+        }
+    }
+
     /**
      * 重写redisTemplate的set方法
      * <p>
@@ -280,15 +496,66 @@ public class RedisLock {
     }
 
     /**
-     * 线程等待时间
+     * 当前线程持有锁键的记录
+     * @param lockKey
+     * 锁键
+     * @return 持有记录(未持有或已释放时返回null)
+     */
+    static Hold currentHold(@Nonnull final String lockKey){
+        final Hold current = HOLDS.get().get(lockKey);
+        return current == null || current.released ? null : current;
+    }
+
+    /**
+     * 登记当前线程持有锁键(多键锁加锁成功后登记各锁键,嵌套的单键锁可重入)
+     * @param lockKey
+     * 锁键
+     * @param lockValue
+     * 锁值
+     * @return 持有记录
      */
-    private void sleep(){
-        try{
-            final long millis = 10;
-            final int nanos = 50000;
-            Thread.sleep(millis, RANDOM.nextInt(nanos));
-        }catch(InterruptedException e){
-            log.warn("sleep-获取分布式锁休眠被中断:" + e.getMessage(), e);
+    static Hold hold(@Nonnull final String lockKey, @Nonnull final String lockValue){
+        final Hold current = new Hold(lockValue);
+        HOLDS.get().put(lockKey, current);
+        return current;
+    }
+
+    /**
+     * 减少持有次数,最外层释放时注销登记
+     * @param lockKey
+     * 锁键
+     * @param hold
+     * 持有记录
+     * @return 是否已完全释放
+     */
+    static boolean release(@Nonnull final String lockKey, @Nonnull final Hold hold){
+        if(hold.count.decrementAndGet() > 0){
+            return false;
+        }
+        hold.released = true;
+        HOLDS.get().remove(lockKey, hold);
+        return true;
+    }
+
+    /**
+     * 锁持有记录
+     */
+    static class Hold {
+        /**
+         * 锁标志对应的值
+         */
+        final String lockValue;
+        /**
+         * 持有次数
+         */
+        final AtomicInteger count = new AtomicInteger(1);
+        /**
+         * 是否已释放
+         */
+        volatile boolean released = false;
+
+        Hold(final String lockValue){
+            this.lockValue = lockValue;
         }
     }
 }
@@ -0,0 +1,314 @@
+package org.young.common.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.young.common.protocol.Constants;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Redis分布式锁释放通知
+ * <p>
+ *     解锁脚本在删除锁键后向该锁键的专属频道({@link #CHANNEL_PREFIX} + 锁键)发布被释放的锁键,
+ *     同一个连接工厂下的所有等待线程共享一个订阅连接,收到通知后立即唤醒对应锁键的等待线程重新争抢锁。
+ * </p>
+ * <p>
+ *     节点只在本地有线程等待某个锁键期间订阅该锁键的频道(第一个等待线程登记时订阅,最后一个注销时退订),
+ *     释放通知只发送给正在等待该锁键的节点,不会广播给所有节点;
+ *     订阅连接始终订阅 {@link #CHANNEL},保持连接不被关闭,锁键频道的订阅和退订复用该连接。
+ * </p>
+ * <p>
+ *     订阅消息可能丢失(如订阅连接重连、持有者宕机后锁键自然过期),等待线程仍需按固定间隔轮询兜底。
+ * </p>
+ * <p>
+ *     订阅线程为守护线程;应用上下文关闭时须调用 {@link #shutdown()} 释放订阅连接,
+ *     注册 {@link Registration} 为Spring Bean即可(见 {@link org.young.common.config.RedisCacheConfigurer})。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class RedisLockNotifier implements MessageListener {
+    /**
+     * 锁释放通知频道(常驻订阅,保持订阅连接)
+     */
+    public static final String CHANNEL = "young_lock_release";
+    /**
+     * 锁键释放通知频道前缀(频道名为前缀 + 锁键)
+     */
+    public static final String CHANNEL_PREFIX = CHANNEL + ":";
+    /**
+     * 订阅锁释放通知时的兜底轮询间隔(ms 毫秒)
+     */
+    private static final long POLL_INTERVAL = 100;
+    /**
+     * 未订阅锁释放通知时的初始轮询间隔(ms 毫秒)
+     */
+    private static final long SLEEP_INTERVAL = 10;
+    /**
+     * 订阅锁释放通知时的默认退避策略(间隔在 POLL_INTERVAL 上下随机抖动,同时被唤醒的等待线程错开重试)
+     */
+    private static final LockBackoff POLL_BACKOFF = new FixedLockBackoff(POLL_INTERVAL / 2, POLL_INTERVAL);
+    /**
+     * 未订阅锁释放通知时的默认退避策略
+     */
+    private static final LockBackoff SLEEP_BACKOFF = new ExponentialLockBackoff(SLEEP_INTERVAL, POLL_INTERVAL);
+
+    /**
+     * 连接工厂-通知器
+     */
+    private static final ConcurrentMap<RedisConnectionFactory, RedisLockNotifier> NOTIFIERS = new ConcurrentHashMap<>();
+
+    /**
+     * 锁键-等待线程集合
+     */
+    private final ConcurrentMap<String, Set<Thread>> waiters = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅容器
+     */
+    private final RedisMessageListenerContainer container;
+
+    /**
+     * 构造函数
+     * @param connectionFactory
+     * 连接工厂
+     */
+    private RedisLockNotifier(@Nonnull final RedisConnectionFactory connectionFactory){
+        final SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("redis-lock-notifier-");
+        executor.setDaemon(true);
+        this.container = new RedisMessageListenerContainer();
+        this.container.setConnectionFactory(connectionFactory);
+        this.container.setTaskExecutor(executor);
+        this.container.setSubscriptionExecutor(executor);
+        this.container.addMessageListener(this, new ChannelTopic(CHANNEL));
+        this.container.afterPropertiesSet();
+        this.container.start();
+    }
+
+    /**
+     * 获取Redis模板对应的通知器
+     * @param redisTemplate
+     * redisTemplate
+     * @return 通知器(订阅失败时返回null,调用方退回轮询)
+     */
+    @Nullable
+    public static RedisLockNotifier getInstance(@Nonnull final RedisTemplate<?, ?> redisTemplate){
+        final RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        if(connectionFactory == null){
+            return null;
+        }
+        try {
+            return NOTIFIERS.computeIfAbsent(connectionFactory, RedisLockNotifier::new);
+        }catch (Throwable ex){
+            log.warn("getInstance-订阅锁释放通知失败:" + ex.getMessage(), ex);
+        }
+        return null;
+    }
+
+    /**
+     * 停止全部通知器并释放订阅连接(之后再获取通知器时重新订阅)
+     */
+    public static void shutdown(){
+        log.debug("shutdown...");
+        NOTIFIERS.forEach((connectionFactory, notifier) -> {
+            if(NOTIFIERS.remove(connectionFactory, notifier)){
+                try {
+                    notifier.container.destroy();
+                }catch (Throwable ex){
+                    log.warn("shutdown-停止订阅失败:" + ex.getMessage(), ex);
+                }
+            }
+        });
+    }
+
+    /**
+     * 循环尝试加锁直至成功或超时(使用默认退避策略)
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKeys
+     * 等待释放的锁键
+     * @param timeout
+     * 请求锁超时时间(纳秒,小于0时一直等待)
+     * @param attempt
+     * 单次加锁尝试
+     * @return 是否成功获得锁
+     */
+    public static boolean acquire(@Nonnull final RedisTemplate<?, ?> redisTemplate, @Nonnull final Collection<String> lockKeys, final long timeout, @Nonnull final BooleanSupplier attempt){
+        return acquire(redisTemplate, lockKeys, timeout, null, attempt);
+    }
+
+    /**
+     * 循环尝试加锁直至成功或超时
+     * <p>
+     *     等待期间订阅锁键的释放通知,任一锁键被释放时立即唤醒重试;
+     *     通知不可用或丢失时按退避策略等待后重试。
+     *     未指定退避策略时,订阅了释放通知按带随机抖动的固定间隔兜底轮询,否则按指数退避(全抖动)轮询。
+     * </p>
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKeys
+     * 等待释放的锁键
+     * @param timeout
+     * 请求锁超时时间(纳秒,小于0时一直等待)
+     * @param backoff
+     * 退避策略(为null时使用默认策略)
+     * @param attempt
+     * 单次加锁尝试
+     * @return 是否成功获得锁
+     */
+    public static boolean acquire(@Nonnull final RedisTemplate<?, ?> redisTemplate, @Nonnull final Collection<String> lockKeys, final long timeout, @Nullable final LockBackoff backoff, @Nonnull final BooleanSupplier attempt){
+        //系统当前时间,纳秒
+        final long nowTime = System.nanoTime();
+        final RedisLockNotifier notifier = getInstance(redisTemplate);
+        if(notifier != null){
+            //先登记等待,再尝试加锁
+            lockKeys.forEach(notifier::register);
+        }
+        final LockBackoff policy = backoff != null ? backoff : (notifier == null ? SLEEP_BACKOFF : POLL_BACKOFF);
+        int failures = 0;
+        try {
+            while (true) {
+                if (attempt.getAsBoolean()) {
+                    //上锁成功，结束请求
+                    return true;
+                }
+                long wait = policy.delay(++failures);
+                if (timeout >= 0) {
+                    final long remaining = timeout - (System.nanoTime() - nowTime);
+                    if (remaining <= 0) {
+                        return false;
+                    }
+                    wait = Math.min(wait, remaining);
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    log.warn("acquire-获取分布式锁等待被中断!");
+                    return false;
+                }
+                //每次请求等待一段时间
+                LockSupport.parkNanos(notifier, wait);
+            }
+        }finally {
+            if(notifier != null){
+                lockKeys.forEach(notifier::unregister);
+            }
+            LockMetrics.retried(failures);
+        }
+    }
+
+    /**
+     * 登记当前线程为锁键的等待线程
+     * <p>
+     *     须在尝试加锁之前登记,避免尝试失败与进入等待之间的释放通知丢失。
+     * </p>
+     * @param lockKey
+     * 锁键
+     */
+    private void register(@Nonnull final String lockKey){
+        final Thread current = Thread.currentThread();
+        waiters.compute(lockKey, (k, threads) -> {
+            final Set<Thread> set = threads == null ? ConcurrentHashMap.newKeySet() : threads;
+            if(threads == null){
+                //第一个等待线程,订阅锁键频道
+                subscribe(k);
+            }
+            set.add(current);
+            return set;
+        });
+    }
+
+    /**
+     * 注销当前线程的等待登记
+     * @param lockKey
+     * 锁键
+     */
+    private void unregister(@Nonnull final String lockKey){
+        final Thread current = Thread.currentThread();
+        waiters.computeIfPresent(lockKey, (k, threads) -> {
+            threads.remove(current);
+            if(threads.isEmpty()){
+                //最后一个等待线程,退订锁键频道
+                unsubscribe(k);
+                return null;
+            }
+            return threads;
+        });
+    }
+
+    /**
+     * 订阅锁键的释放通知频道
+     * <p>
+     *     在锁键的等待登记内执行,与退订按登记顺序串行;订阅失败时等待线程退回轮询。
+     * </p>
+     * @param lockKey
+     * 锁键
+     */
+    private void subscribe(@Nonnull final String lockKey){
+        try {
+            container.addMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + lockKey));
+        }catch (Throwable ex){
+            log.warn("subscribe-订阅锁释放通知失败:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 退订锁键的释放通知频道
+     * @param lockKey
+     * 锁键
+     */
+    private void unsubscribe(@Nonnull final String lockKey){
+        try {
+            container.removeMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + lockKey));
+        }catch (Throwable ex){
+            log.warn("unsubscribe-退订锁释放通知失败:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 唤醒锁键的全部等待线程
+     * @param lockKey
+     * 锁键
+     */
+    public void wakeup(@Nonnull final String lockKey){
+        final Set<Thread> threads = waiters.get(lockKey);
+        if(threads != null){
+            threads.forEach(LockSupport::unpark);
+        }
+    }
+
+    @Override
+    public void onMessage(@Nonnull final Message message, @Nullable final byte[] pattern) {
+        final byte[] body = message.getBody();
+        if(body != null && body.length > 0){
+            final String lockKey = new String(body, Constants.CHARSET);
+            log.debug("onMessage-lockKey: {}", lockKey);
+            wakeup(lockKey);
+        }
+    }
+
+    /**
+     * 通知器生命周期(注册为Spring Bean,应用上下文关闭时停止全部通知器)
+     */
+    public static class Registration implements DisposableBean {
+
+        @Override
+        public void destroy() {
+            shutdown();
+        }
+    }
+}
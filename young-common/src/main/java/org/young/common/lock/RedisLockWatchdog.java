@@ -0,0 +1,230 @@
+package org.young.common.lock;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ClusterSlotHashUtil;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis分布式锁续期看门狗
+ * <p>
+ *     节点内共享一个调度线程,定期为仍被持有的锁续期(每个租期续期三次),
+ *     同一个Redis模板下到期的锁按哈希槽分组,同一哈希槽的锁在一次lua脚本调用中批量续期(Redis Cluster 下不会 CROSSSLOT),
+ *     每批最多 {@link #BATCH_SIZE} 个锁,避免单次脚本执行过久阻塞Redis;各批独立执行,一批失败不影响其他批的续期。
+ *     锁键分散在不同哈希槽时每个哈希槽各一次脚本调用,大量短租期锁宜使用相同的哈希标签(如 {order}:1)以合并续期。
+ *     锁可以使用较短的租期,持有节点宕机后锁很快自然过期。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class RedisLockWatchdog {
+    /**
+     * 调度间隔(ms 毫秒)
+     */
+    private static final long TICK = 200;
+    /**
+     * 每次脚本调用续期的最大锁数量
+     */
+    private static final int BATCH_SIZE = 100;
+
+    /**
+     * 批量续期的lua脚本
+     * <p>
+     *     KEYS: 锁键; ARGV: 前N个为锁值,接着N个为租期(毫秒); 返回每个锁键的续期结果(1:成功,0:锁已丢失)。
+     *     字符串类型的锁键比较锁值,哈希类型的锁键(读写锁)检查锁值字段是否存在并顺延该持有者的过期时间,
+     *     有序集合类型的锁键(信号量)检查许可是否存在并将许可的过期时间顺延一个租期;过期时间均以Redis服务器时间计算。
+     * </p>
+     */
+    public static final String RENEW_LUA;
+    /**
+     * 批量续期脚本
+     */
+    private static final RedisScriptRegistry.Script RENEW_SCRIPT;
+
+    static {
+        RENEW_LUA = "redis.replicate_commands() " +
+                "local time = redis.call(\"time\") " +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+                "local n = #KEYS " +
+                "local ret = {} " +
+                "for i = 1, n do " +
+                "    local t = redis.call(\"type\",KEYS[i]).ok " +
+                "    if t == \"string\" and redis.call(\"get\",KEYS[i]) == ARGV[i] " +
+                "    then " +
+                "        ret[i] = redis.call(\"pexpire\",KEYS[i],ARGV[n + i]) " +
+                "    elseif t == \"hash\" and redis.call(\"hexists\",KEYS[i],ARGV[i]) == 1 " +
+                "    then " +
+                "        redis.call(\"hset\",KEYS[i],ARGV[i] .. \":t\",now + tonumber(ARGV[n + i])) " +
+                "        if redis.call(\"pttl\",KEYS[i]) < tonumber(ARGV[n + i]) " +
+                "        then " +
+                "            redis.call(\"pexpire\",KEYS[i],ARGV[n + i]) " +
+                "        end " +
+                "        ret[i] = 1 " +
+                "    elseif t == \"zset\" and redis.call(\"zscore\",KEYS[i],ARGV[i]) " +
+                "    then " +
+                "        redis.call(\"zadd\",KEYS[i],now + tonumber(ARGV[n + i]),ARGV[i]) " +
+                "        if redis.call(\"pttl\",KEYS[i]) < tonumber(ARGV[n + i]) " +
+                "        then " +
+                "            redis.call(\"pexpire\",KEYS[i],ARGV[n + i]) " +
+                "        end " +
+                "        ret[i] = 1 " +
+                "    else " +
+                "        ret[i] = 0 " +
+                "    end " +
+                "end " +
+                "return ret ";
+        RENEW_SCRIPT = RedisScriptRegistry.register(RENEW_LUA);
+    }
+
+    /**
+     * 锁键及锁值-租约(同一锁键可能有多个持有者,如读锁)
+     */
+    private static final ConcurrentMap<String, Lease> LEASES = new ConcurrentHashMap<>();
+
+    /**
+     * 调度线程
+     */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        final Thread thread = new Thread(r, "redis-lock-watchdog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        SCHEDULER.scheduleWithFixedDelay(RedisLockWatchdog::renew, TICK, TICK, TimeUnit.MILLISECONDS);
+    }
+
+    private RedisLockWatchdog(){
+
+    }
+
+    /**
+     * 登记需要续期的锁
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKey
+     * 锁键
+     * @param lockValue
+     * 锁值
+     * @param leaseMillis
+     * 租期(毫秒)
+     */
+    public static void register(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String lockKey, @Nonnull final String lockValue, final long leaseMillis){
+        log.debug("register(lockKey: {}, leaseMillis: {})...", lockKey, leaseMillis);
+        LEASES.put(leaseKey(lockKey, lockValue), new Lease(redisTemplate, lockKey, lockValue, leaseMillis));
+    }
+
+    /**
+     * 注销锁的续期
+     * @param lockKey
+     * 锁键
+     * @param lockValue
+     * 锁值
+     */
+    public static void unregister(@Nonnull final String lockKey, @Nonnull final String lockValue){
+        log.debug("unregister(lockKey: {})...", lockKey);
+        LEASES.remove(leaseKey(lockKey, lockValue));
+    }
+
+    private static String leaseKey(@Nonnull final String lockKey, @Nonnull final String lockValue){
+        return lockKey + "\n" + lockValue;
+    }
+
+    /**
+     * 续期到期的锁
+     */
+    private static void renew(){
+        if(LEASES.isEmpty()){
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        //Redis模板-哈希槽-租约集合
+        final Map<RedisTemplate<Object, Object>, Map<Integer, List<Lease>>> groups = new HashMap<>();
+        LEASES.forEach((key, lease) -> {
+            if(now >= lease.renewAt){
+                groups.computeIfAbsent(lease.redisTemplate, t -> new HashMap<>())
+                        .computeIfAbsent(lease.slot, slot -> new ArrayList<>())
+                        .add(lease);
+            }
+        });
+        groups.forEach((redisTemplate, slots) -> slots.values().forEach(leases -> {
+            for(List<Lease> batch : Lists.partition(leases, BATCH_SIZE)){
+                try {
+                    renew(redisTemplate, batch, now);
+                }catch (Throwable ex){
+                    log.warn("renew-续期分布式锁失败:" + ex.getMessage(), ex);
+                }
+            }
+        }));
+    }
+
+    /**
+     * 批量续期同一个Redis模板、同一哈希槽下的锁
+     * @param redisTemplate
+     * redisTemplate
+     * @param leases
+     * 租约集合
+     * @param now
+     * 当前时间(毫秒)
+     */
+    private static void renew(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final List<Lease> leases, final long now){
+        final int n = leases.size();
+        final byte[][] keysAndArgs = new byte[n * 3][];
+        for(int i = 0; i < n; i++){
+            final Lease lease = leases.get(i);
+            keysAndArgs[i] = lease.lockKey.getBytes(Constants.CHARSET);
+            keysAndArgs[n + i] = lease.lockValue.getBytes(Constants.CHARSET);
+            keysAndArgs[2 * n + i] = String.valueOf(lease.leaseMillis).getBytes(Constants.CHARSET);
+        }
+        final List<Object> results = RedisScriptRegistry.eval(redisTemplate, RENEW_SCRIPT, ReturnType.MULTI, n, keysAndArgs);
+        for(int i = 0; i < n; i++){
+            final Lease lease = leases.get(i);
+            final Object ret = results == null || results.size() <= i ? null : results.get(i);
+            if(ret instanceof Long && (Long) ret > 0){
+                lease.renewAt = now + lease.leaseMillis / 3;
+            }else {
+                log.warn("renew-锁已丢失,停止续期: {}", lease.lockKey);
+                unregister(lease.lockKey, lease.lockValue);
+            }
+        }
+    }
+
+    /**
+     * 租约
+     */
+    private static class Lease {
+        private final RedisTemplate<Object, Object> redisTemplate;
+        private final String lockKey;
+        private final String lockValue;
+        private final long leaseMillis;
+        /**
+         * 锁键的哈希槽
+         */
+        private final int slot;
+        private volatile long renewAt;
+
+        Lease(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String lockKey, @Nonnull final String lockValue, final long leaseMillis){
+            this.redisTemplate = redisTemplate;
+            this.lockKey = lockKey;
+            this.lockValue = lockValue;
+            this.leaseMillis = leaseMillis;
+            this.slot = ClusterSlotHashUtil.calculateSlot(lockKey);
+            this.renewAt = System.currentTimeMillis() + leaseMillis / 3;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package org.young.common.lock;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis分布式读写锁
+ * <p>
+ *     锁键为哈希结构: 字段 mode 记录当前模式(read/write),字段"锁值"为持有者的持有次数,
+ *     字段"锁值:t"为该持有者的过期时间(Redis服务器时间,毫秒)。
+ *     读锁之间互不阻塞,写锁与任何锁互斥,模式判断与计数均在lua脚本中原子完成;
+ *     同一线程使用同一锁值,写锁持有者可重入写锁,也可在持有写锁时获取读锁;
+ *     每个持有者单独过期,脚本执行时先清理已过期的持有者,宕机的读者不会让写锁一直等待;
+ *     写锁等待期间设置等待标记(锁键:wwait),新的读者(非重入)在标记存在时退让。
+ *     最后一个持有者释放后删除锁键并发布锁释放通知;读锁不支持升级为写锁。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisReadWriteLock {
+    /**
+     * 写锁等待标记的有效时间(ms 毫秒),等待中的写锁每次重试都会刷新标记
+     */
+    private static final long WRITER_WAIT = 1000;
+    /**
+     * 节点标识(与线程ID组成持有者锁值)
+     */
+    private static final String NODE = UUID.randomUUID().toString();
+
+    /**
+     * 取服务器时间并清理已过期持有者的lua脚本片段(所有持有者均过期时删除锁键)
+     */
+    private static final String PURGE_LUA = "redis.replicate_commands() " +
+            "local time = redis.call(\"time\") " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local fields = redis.call(\"hgetall\",KEYS[1]) " +
+            "for i = 1, #fields, 2 do " +
+            "    local f = fields[i] " +
+            "    if string.sub(f,-2) == \":t\" and tonumber(fields[i + 1]) <= now " +
+            "    then " +
+            "        redis.call(\"hdel\",KEYS[1],f,string.sub(f,1,-3)) " +
+            "    end " +
+            "end " +
+            "if #fields > 0 and redis.call(\"hlen\",KEYS[1]) <= 1 " +
+            "then " +
+            "    redis.call(\"del\",KEYS[1]) " +
+            "end ";
+    /**
+     * 登记持有者(持有次数加一并刷新过期时间)的lua脚本片段
+     */
+    private static final String HOLD_LUA = "local count = redis.call(\"hincrby\",KEYS[1],ARGV[1],1) " +
+            "redis.call(\"hset\",KEYS[1],ARGV[1] .. \":t\",now + tonumber(ARGV[2])) " +
+            "if redis.call(\"pttl\",KEYS[1]) < tonumber(ARGV[2]) " +
+            "then " +
+            "    redis.call(\"pexpire\",KEYS[1],ARGV[2]) " +
+            "end " +
+            "return count ";
+
+    /**
+     * 获取读锁的lua脚本
+     * <p>
+     *     KEYS[1]: 锁键; KEYS[2]: 写锁等待标记; ARGV[1]: 锁值; ARGV[2]: 锁的有效时间(毫秒);
+     *     返回持有次数,0为获取失败。
+     * </p>
+     */
+    public static final String READ_LOCK_LUA;
+    /**
+     * 获取写锁的lua脚本
+     * <p>
+     *     KEYS[1]: 锁键; KEYS[2]: 写锁等待标记; ARGV[1]: 锁值; ARGV[2]: 锁的有效时间(毫秒); ARGV[3]: 等待标记有效时间(毫秒);
+     *     返回持有次数,0为获取失败(同时设置写锁等待标记)。
+     * </p>
+     */
+    public static final String WRITE_LOCK_LUA;
+    /**
+     * 解锁的lua脚本
+     * <p>
+     *     KEYS[1]: 锁键; ARGV[1]: 锁值; 返回剩余持有次数,-1为未持有锁;
+     *     最后一个持有者解锁后删除锁键并发布锁释放通知。
+     * </p>
+     */
+    public static final String UNLOCK_LUA;
+
+    /**
+     * 获取读锁脚本
+     */
+    private static final RedisScriptRegistry.Script READ_LOCK_SCRIPT;
+    /**
+     * 获取写锁脚本
+     */
+    private static final RedisScriptRegistry.Script WRITE_LOCK_SCRIPT;
+    /**
+     * 解锁脚本
+     */
+    private static final RedisScriptRegistry.Script UNLOCK_SCRIPT;
+
+    static {
+        READ_LOCK_LUA = PURGE_LUA +
+                "local mode = redis.call(\"hget\",KEYS[1],\"mode\") " +
+                "local held = redis.call(\"hexists\",KEYS[1],ARGV[1]) == 1 " +
+                "if mode == \"write\" and not held " +
+                "then " +
+                "    return 0 " +
+                "end " +
+                "if not held and redis.call(\"exists\",KEYS[2]) == 1 " +
+                "then " +
+                "    return 0 " +
+                "end " +
+                "if mode == false " +
+                "then " +
+                "    redis.call(\"hset\",KEYS[1],\"mode\",\"read\") " +
+                "end " +
+                HOLD_LUA;
+        WRITE_LOCK_LUA = PURGE_LUA +
+                "local mode = redis.call(\"hget\",KEYS[1],\"mode\") " +
+                "if mode == false " +
+                "then " +
+                "    redis.call(\"hset\",KEYS[1],\"mode\",\"write\") " +
+                "    redis.call(\"del\",KEYS[2]) " +
+                "elseif mode ~= \"write\" or redis.call(\"hexists\",KEYS[1],ARGV[1]) == 0 " +
+                "then " +
+                "    redis.call(\"set\",KEYS[2],ARGV[1],\"PX\",ARGV[3]) " +
+                "    return 0 " +
+                "end " +
+                HOLD_LUA;
+        UNLOCK_LUA = "if redis.call(\"hexists\",KEYS[1],ARGV[1]) == 0 " +
+                "then " +
+                "    return -1 " +
+                "end " +
+                "local count = redis.call(\"hincrby\",KEYS[1],ARGV[1],-1) " +
+                "if count > 0 " +
+                "then " +
+                "    return count " +
+                "end " +
+                "redis.call(\"hdel\",KEYS[1],ARGV[1],ARGV[1] .. \":t\") " +
+                "if redis.call(\"hlen\",KEYS[1]) <= 1 " +
+                "then " +
+                "    redis.call(\"del\",KEYS[1]) " +
+                "    redis.call(\"publish\",\"" + RedisLockNotifier.CHANNEL_PREFIX + "\" .. KEYS[1],KEYS[1]) " +
+                "end " +
+                "return 0 ";
+        READ_LOCK_SCRIPT = RedisScriptRegistry.register(READ_LOCK_LUA);
+        WRITE_LOCK_SCRIPT = RedisScriptRegistry.register(WRITE_LOCK_LUA);
+        UNLOCK_SCRIPT = RedisScriptRegistry.register(UNLOCK_LUA);
+    }
+
+    /**
+     * 锁标志对应的key
+     */
+    @Getter
+    private final String lockKey;
+    /**
+     * 锁的有效时间(s)
+     */
+    @Getter
+    @Setter
+    private int expireTime = RedisLock.EXPIRE;
+    /**
+     * 请求锁的超时时间(ms)
+     */
+    @Getter
+    @Setter
+    private long timeOut = RedisLock.TIME_OUT;
+    /**
+     * 是否由看门狗自动续期
+     */
+    @Getter
+    @Setter
+    private boolean renew = false;
+    /**
+     * 等待锁时的退避策略(为null时使用默认策略)
+     */
+    @Getter
+    @Setter
+    private LockBackoff backoff;
+    /**
+     * redisTemplate
+     */
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * redisTemplate
+     * @param lockKey
+     * 锁的key(Redis的Key)
+     * @param expireTime
+     * 锁的过期时间(单位：秒)
+     * @param timeOut
+     * 请求锁的超时时间(单位：毫秒)
+     */
+    public RedisReadWriteLock(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String lockKey, int expireTime, long timeOut){
+        log.debug("RedisReadWriteLock(lockKey: {}, expireTime: {}, timeOut: {})...", lockKey, expireTime, timeOut);
+        this.redisTemplate = redisTemplate;
+        this.lockKey = lockKey;
+        this.expireTime = expireTime;
+        this.timeOut = timeOut;
+    }
+
+    /**
+     * 创建读锁
+     * @return 读锁
+     */
+    public DistributedLock readLock(){
+        return new Mode(READ_LOCK_SCRIPT);
+    }
+
+    /**
+     * 创建写锁
+     * @return 写锁
+     */
+    public DistributedLock writeLock(){
+        return new Mode(WRITE_LOCK_SCRIPT);
+    }
+
+    /**
+     * 当前线程的持有者锁值(同一线程的读锁与写锁共用,用于重入)
+     * @return 锁值
+     */
+    private static String holder(){
+        return NODE + ":" + Thread.currentThread().getId();
+    }
+
+    /**
+     * 执行lua脚本
+     * @param script
+     * lua脚本
+     * @param keys
+     * 脚本键数量(锁键及写锁等待标记)
+     * @param args
+     * 脚本参数
+     * @return 脚本返回值
+     */
+    private long eval(@Nonnull final RedisScriptRegistry.Script script, final int keys, @Nonnull final String... args){
+        final byte[][] keysAndArgs = new byte[args.length + keys][];
+        keysAndArgs[0] = lockKey.getBytes(Constants.CHARSET);
+        if(keys > 1){
+            keysAndArgs[1] = (lockKey + ":wwait").getBytes(Constants.CHARSET);
+        }
+        for(int i = 0; i < args.length; i++){
+            keysAndArgs[i + keys] = args[i].getBytes(Constants.CHARSET);
+        }
+        final Long ret = RedisScriptRegistry.eval(redisTemplate, script, ReturnType.INTEGER, keys, keysAndArgs);
+        return ret == null ? 0 : ret;
+    }
+
+    /**
+     * 读锁/写锁
+     */
+    private class Mode implements DistributedLock {
+        /**
+         * 加锁的lua脚本
+         */
+        private final RedisScriptRegistry.Script lockScript;
+        /**
+         * 锁标记
+         */
+        private final AtomicBoolean locked = new AtomicBoolean(false);
+        /**
+         * 锁标志对应的值
+         */
+        private String lockValue;
+
+        Mode(@Nonnull final RedisScriptRegistry.Script lockScript){
+            this.lockScript = lockScript;
+        }
+
+        @Override
+        public boolean tryLock() {
+            return acquire(TimeUnit.MILLISECONDS.toNanos(timeOut));
+        }
+
+        @Override
+        public boolean lock() {
+            return acquire(0);
+        }
+
+        @Override
+        public boolean lockBlock() {
+            return acquire(-1);
+        }
+
+        @Override
+        public Boolean unlock() {
+            if(locked.compareAndSet(true, false)){
+                final long remain = eval(UNLOCK_SCRIPT, 1, lockValue);
+                //重入的锁由最外层释放时注销续期及统计
+                if(remain <= 0){
+                    if(renew){
+                        RedisLockWatchdog.unregister(lockKey, lockValue);
+                    }
+                    LockMetrics.released(lockKey, lockValue);
+                }
+                return remain >= 0;
+            }
+            return true;
+        }
+
+        /**
+         * 循环获取锁
+         * @param timeout
+         * 请求锁超时时间(纳秒,小于0时一直等待)
+         * @return 是否成功获得锁
+         */
+        private boolean acquire(final long timeout){
+            this.lockValue = holder();
+            final long leaseMillis = TimeUnit.SECONDS.toMillis(expireTime);
+            final String expire = String.valueOf(leaseMillis);
+            final String wait = String.valueOf(WRITER_WAIT);
+            final long[] count = new long[1];
+            if(RedisLockNotifier.acquire(redisTemplate, Collections.singletonList(lockKey), timeout, backoff, () -> (count[0] = eval(lockScript, 2, lockValue, expire, wait)) > 0)){
+                locked.set(true);
+                //首次持有时登记统计及续期,重入时只增加持有次数
+                if(count[0] == 1){
+                    LockMetrics.held(redisTemplate, lockKey, lockValue);
+                    if(renew){
+                        RedisLockWatchdog.register(redisTemplate, lockKey, lockValue, leaseMillis);
+                    }
+                }
+                return true;
+            }
+            return false;
+        }
+    }
+}
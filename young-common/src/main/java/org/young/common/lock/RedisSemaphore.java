@@ -0,0 +1,215 @@
+package org.young.common.lock;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis分布式信号量(计数信号量)
+ * <p>
+ *     信号量键为有序集合: 成员为许可口令串,分值为许可的过期时间(毫秒)。
+ *     获取许可时先清除已过期的许可,再在许可数未满时登记新许可,均在lua脚本中原子完成;
+ *     持有者宕机后其许可在租期结束时即可被其他调用方回收,开启续期时由看门狗顺延许可的过期时间。
+ * </p>
+ * <p>
+ *     每个实例代表一次许可的获取,不支持重入;许可过期时间以Redis服务器时间计算,与各节点时钟无关。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisSemaphore implements DistributedLock {
+    /**
+     * 获取许可的lua脚本
+     * <p>
+     *     KEYS[1]: 信号量键; ARGV[1]: 许可口令串; ARGV[2]: 许可数; ARGV[3]: 租期(毫秒); 当前时间取Redis服务器时间。
+     * </p>
+     */
+    public static final String ACQUIRE_LUA;
+    /**
+     * 释放许可的lua脚本(释放成功后发布释放通知)
+     */
+    public static final String RELEASE_LUA;
+
+    /**
+     * 获取许可脚本
+     */
+    private static final RedisScriptRegistry.Script ACQUIRE_SCRIPT;
+    /**
+     * 释放许可脚本
+     */
+    private static final RedisScriptRegistry.Script RELEASE_SCRIPT;
+
+    static {
+        ACQUIRE_LUA = "redis.replicate_commands() " +
+                "local time = redis.call(\"time\") " +
+                "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+                "redis.call(\"zremrangebyscore\",KEYS[1],\"-inf\",now) " +
+                "if redis.call(\"zcard\",KEYS[1]) < tonumber(ARGV[2]) " +
+                "then " +
+                "    redis.call(\"zadd\",KEYS[1],now + tonumber(ARGV[3]),ARGV[1]) " +
+                "    if redis.call(\"pttl\",KEYS[1]) < tonumber(ARGV[3]) " +
+                "    then " +
+                "        redis.call(\"pexpire\",KEYS[1],ARGV[3]) " +
+                "    end " +
+                "    return 1 " +
+                "end " +
+                "return 0 ";
+        RELEASE_LUA = "if redis.call(\"zrem\",KEYS[1],ARGV[1]) == 1 " +
+                "then " +
+                "    redis.call(\"publish\",\"" + RedisLockNotifier.CHANNEL_PREFIX + "\" .. KEYS[1],KEYS[1]) " +
+                "    return 1 " +
+                "end " +
+                "return 0 ";
+        ACQUIRE_SCRIPT = RedisScriptRegistry.register(ACQUIRE_LUA);
+        RELEASE_SCRIPT = RedisScriptRegistry.register(RELEASE_LUA);
+    }
+
+    /**
+     * 许可标记
+     */
+    private final AtomicBoolean locked = new AtomicBoolean(false);
+
+    /**
+     * 信号量对应的key
+     */
+    @Getter
+    private final String semaphoreKey;
+    /**
+     * 许可数
+     */
+    @Getter
+    private final int permits;
+    /**
+     * 许可的有效时间(s)
+     */
+    @Getter
+    @Setter
+    private int expireTime = RedisLock.EXPIRE;
+    /**
+     * 请求许可的超时时间(ms)
+     */
+    @Getter
+    @Setter
+    private long timeOut = RedisLock.TIME_OUT;
+    /**
+     * 是否由看门狗自动续期
+     */
+    @Getter
+    @Setter
+    private boolean renew = false;
+    /**
+     * 许可口令串
+     */
+    private String token;
+    /**
+     * redisTemplate
+     */
+    private final RedisTemplate<Object, Object> redisTemplate;
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * redisTemplate
+     * @param semaphoreKey
+     * 信号量的key(Redis的Key)
+     * @param permits
+     * 许可数
+     * @param expireTime
+     * 许可的过期时间(单位：秒)
+     * @param timeOut
+     * 请求许可的超时时间(单位：毫秒)
+     */
+    public RedisSemaphore(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String semaphoreKey, final int permits, final int expireTime, final long timeOut){
+        log.debug("RedisSemaphore(semaphoreKey: {}, permits: {}, expireTime: {}, timeOut: {})...", semaphoreKey, permits, expireTime, timeOut);
+        Assert.isTrue(permits > 0, "'permits'必须大于0!");
+        this.redisTemplate = redisTemplate;
+        this.semaphoreKey = semaphoreKey;
+        this.permits = permits;
+        this.expireTime = expireTime;
+        this.timeOut = timeOut;
+    }
+
+    @Override
+    public boolean tryLock() {
+        log.debug("tryLock...");
+        return acquire(TimeUnit.MILLISECONDS.toNanos(timeOut));
+    }
+
+    @Override
+    public boolean lock() {
+        log.debug("lock...");
+        return acquire(0);
+    }
+
+    @Override
+    public boolean lockBlock() {
+        log.debug("lockBlock...");
+        return acquire(-1);
+    }
+
+    @Override
+    public Boolean unlock() {
+        log.debug("unlock...");
+        if(locked.compareAndSet(true, false)){
+            if(renew){
+                RedisLockWatchdog.unregister(semaphoreKey, token);
+            }
+            LockMetrics.released(semaphoreKey, token);
+            return eval(RELEASE_SCRIPT, token) > 0;
+        }
+        return true;
+    }
+
+    /**
+     * 循环获取许可(等待期间订阅许可释放通知)
+     * @param timeout
+     * 请求许可超时时间(纳秒,小于0时一直等待)
+     * @return 是否成功获得许可
+     */
+    private boolean acquire(final long timeout){
+        this.token = UUID.randomUUID().toString();
+        final long leaseMillis = TimeUnit.SECONDS.toMillis(expireTime);
+        final String limit = String.valueOf(permits);
+        final String lease = String.valueOf(leaseMillis);
+        if(RedisLockNotifier.acquire(redisTemplate, Collections.singletonList(semaphoreKey), timeout,
+                () -> eval(ACQUIRE_SCRIPT, token, limit, lease) > 0)){
+            locked.set(true);
+            LockMetrics.held(redisTemplate, semaphoreKey, token);
+            if(renew){
+                RedisLockWatchdog.register(redisTemplate, semaphoreKey, token, leaseMillis);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 执行lua脚本
+     * @param script
+     * lua脚本
+     * @param args
+     * 脚本参数
+     * @return 脚本返回值
+     */
+    private long eval(@Nonnull final RedisScriptRegistry.Script script, @Nonnull final String... args){
+        final byte[][] keysAndArgs = new byte[args.length + 1][];
+        keysAndArgs[0] = semaphoreKey.getBytes(Constants.CHARSET);
+        for(int i = 0; i < args.length; i++){
+            keysAndArgs[i + 1] = args[i].getBytes(Constants.CHARSET);
+        }
+        final Long ret = RedisScriptRegistry.eval(redisTemplate, script, ReturnType.INTEGER, 1, keysAndArgs);
+        return ret == null ? 0 : ret;
+    }
+}
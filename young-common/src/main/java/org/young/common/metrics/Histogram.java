@@ -0,0 +1,177 @@
+package org.young.common.metrics;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁直方图
+ * <p>
+ *     按对数分桶记录非负数值: 每个2的幂区间再等分为 {@link #SUB_BUCKETS} 个子桶,分位数的相对误差不超过 1/{@link #SUB_BUCKETS};
+ *     记录操作只做一次原子累加,可在热点路径上直接调用。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+public class Histogram {
+    /**
+     * 每个2的幂区间的子桶数
+     */
+    private static final int SUB_BUCKETS = 8;
+    /**
+     * 子桶数对应的位数
+     */
+    private static final int SUB_BITS = 3;
+    /**
+     * 桶的总数
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * 各桶的计数
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    /**
+     * 记录总数
+     */
+    private final LongAdder count = new LongAdder();
+    /**
+     * 数值总和
+     */
+    private final LongAdder sum = new LongAdder();
+    /**
+     * 最大值
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录数值
+     * @param value
+     * 数值(小于0时按0记录)
+     */
+    public void record(final long value){
+        final long v = Math.max(value, 0);
+        counts.incrementAndGet(index(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    /**
+     * 获取记录总数
+     * @return 记录总数
+     */
+    public long getCount(){
+        return count.sum();
+    }
+
+    /**
+     * 获取分位数(桶的上界)
+     * @param quantile
+     * 分位(0~1)
+     * @return 分位数
+     */
+    public long getPercentile(final double quantile){
+        final long total = count.sum();
+        if(total <= 0){
+            return 0;
+        }
+        final long rank = (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * total);
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += counts.get(i);
+            if(seen >= Math.max(rank, 1)){
+                return Math.min(upperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * 生成统计快照
+     * @return 统计快照
+     */
+    public Snapshot snapshot(){
+        return new Snapshot(this);
+    }
+
+    /**
+     * 计算数值所在桶的索引
+     * @param v
+     * 数值(非负)
+     * @return 桶索引
+     */
+    private static int index(final long v){
+        if(v < SUB_BUCKETS){
+            return (int) v;
+        }
+        final int m = 63 - Long.numberOfLeadingZeros(v);
+        final int sub = (int) ((v >>> (m - SUB_BITS)) & (SUB_BUCKETS - 1));
+        return (m - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * 计算桶的上界
+     * @param index
+     * 桶索引
+     * @return 桶的上界(包含)
+     */
+    private static long upperBound(final int index){
+        if(index < SUB_BUCKETS){
+            return index;
+        }
+        final int m = index / SUB_BUCKETS + SUB_BITS - 1;
+        final long sub = index % SUB_BUCKETS;
+        final long lower = (1L << m) + (sub << (m - SUB_BITS));
+        return lower + (1L << (m - SUB_BITS)) - 1;
+    }
+
+    /**
+     * 统计快照
+     */
+    @Getter
+    @ToString
+    public static class Snapshot {
+        /**
+         * 记录总数
+         */
+        private final long count;
+        /**
+         * 平均值
+         */
+        private final long mean;
+        /**
+         * 最大值
+         */
+        private final long max;
+        /**
+         * 50分位数
+         */
+        private final long p50;
+        /**
+         * 90分位数
+         */
+        private final long p90;
+        /**
+         * 99分位数
+         */
+        private final long p99;
+        /**
+         * 99.9分位数
+         */
+        private final long p999;
+
+        Snapshot(final Histogram histogram){
+            this.count = histogram.count.sum();
+            this.mean = count > 0 ? histogram.sum.sum() / count : 0;
+            this.max = histogram.max.get();
+            this.p50 = histogram.getPercentile(0.5);
+            this.p90 = histogram.getPercentile(0.9);
+            this.p99 = histogram.getPercentile(0.99);
+            this.p999 = histogram.getPercentile(0.999);
+        }
+    }
+}
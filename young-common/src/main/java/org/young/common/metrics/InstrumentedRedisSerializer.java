@@ -0,0 +1,45 @@
+package org.young.common.metrics;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * 统计值字节数与耗时的Redis序列化(见 {@link RedisMetrics})
+ *
+ * @param <T> 值类型
+ * @author jeasonyoung
+ */
+public class InstrumentedRedisSerializer<T> implements RedisSerializer<T> {
+    private final RedisSerializer<T> delegate;
+
+    /**
+     * 构造函数
+     * @param delegate
+     * 被统计的序列化
+     */
+    public InstrumentedRedisSerializer(@Nonnull final RedisSerializer<T> delegate){
+        this.delegate = delegate;
+    }
+
+    @Override
+    public byte[] serialize(final T t) throws SerializationException {
+        final long start = System.nanoTime();
+        final byte[] data = delegate.serialize(t);
+        if(data != null){
+            RedisMetrics.serialized(data.length, System.nanoTime() - start);
+        }
+        return data;
+    }
+
+    @Override
+    public T deserialize(final byte[] bytes) throws SerializationException {
+        final long start = System.nanoTime();
+        final T value = delegate.deserialize(bytes);
+        if(bytes != null){
+            RedisMetrics.deserialized(bytes.length, System.nanoTime() - start);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,425 @@
+package org.young.common.metrics;
+
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.util.ClassUtils;
+import org.young.common.protocol.Constants;
+
+import javax.annotation.Nonnull;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis统计
+ * <p>
+ *     按"命令 键前缀"统计Redis命令耗时(微秒)的分布,按序列化/反序列化统计值的字节数与耗时(微秒)的分布,
+ *     并在连接代理中按命令的写入参数与读取结果记录超过阈值的大值(含键及键前缀),用于定位生产环境中Redis的耗时与流量来源。
+ * </p>
+ * <p>
+ *     键前缀取键中第一个 ':' 之前的部分,没有 ':' 时取最后一个 '_' 及之前的部分;
+ *     统计项超过 {@link #MAX_STATS} 个后,新的键前缀合并记为 {@link #OTHER}。
+ *     管道、事务中的命令只统计整个管道/事务的提交耗时,其读取结果不检查大值。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class RedisMetrics {
+    /**
+     * 统计项的最大数量
+     */
+    private static final int MAX_STATS = 1000;
+    /**
+     * 键前缀的最大长度
+     */
+    private static final int MAX_PREFIX = 64;
+    /**
+     * 超出统计项数量时的键前缀
+     */
+    private static final String OTHER = "*";
+    /**
+     * 保留的最近大值记录数
+     */
+    private static final int MAX_BIG_VALUES = 100;
+    /**
+     * 大值记录中键的最大长度
+     */
+    private static final int MAX_KEY = 256;
+    /**
+     * 不统计的连接方法
+     */
+    private static final Set<String> EXCLUDED = new HashSet<>(Arrays.asList(
+            "close", "isClosed", "getNativeConnection", "isQueueing", "isPipelined", "openPipeline", "multi", "discard",
+            "isSubscribed", "getSubscription", "getSentinelConnection",
+            "keyCommands", "stringCommands", "listCommands", "setCommands", "zSetCommands", "hashCommands",
+            "geoCommands", "hyperLogLogCommands", "serverCommands", "scriptingCommands"
+    ));
+    /**
+     * 写入值的连接方法(检查键之后的值参数)
+     */
+    private static final Set<String> WRITES = new HashSet<>(Arrays.asList(
+            "set", "setEx", "pSetEx", "setNX", "getSet", "append", "setRange",
+            "hSet", "hSetNX", "hMSet", "lPush", "rPush", "lPushX", "rPushX", "lInsert", "lSet",
+            "sAdd", "zAdd", "pfAdd", "restore"
+    ));
+
+    /**
+     * "命令 键前缀"-耗时(微秒)
+     */
+    private static final ConcurrentMap<String, Histogram> COMMANDS = new ConcurrentHashMap<>();
+    /**
+     * 序列化/反序列化-值字节数
+     */
+    private static final ConcurrentMap<String, Histogram> SIZES = new ConcurrentHashMap<>();
+    /**
+     * 序列化/反序列化-耗时(微秒)
+     */
+    private static final ConcurrentMap<String, Histogram> SERIALIZE_TIMES = new ConcurrentHashMap<>();
+    /**
+     * 最近的大值记录
+     */
+    private static final Deque<BigValue> BIG_VALUES = new ArrayDeque<>(MAX_BIG_VALUES);
+
+    /**
+     * 大值阈值(字节)
+     */
+    private static volatile int bigValueThreshold = 100 * 1024;
+
+    private RedisMetrics(){
+
+    }
+
+    /**
+     * 设置大值阈值
+     * @param threshold
+     * 大值阈值(字节,小于等于0时不记录大值)
+     */
+    public static void setBigValueThreshold(final int threshold){
+        log.debug("setBigValueThreshold(threshold: {})...", threshold);
+        bigValueThreshold = threshold;
+    }
+
+    /**
+     * 包装Redis连接,统计命令耗时
+     * @param connection
+     * Redis连接
+     * @return 统计命令耗时的Redis连接
+     */
+    public static RedisConnection instrument(@Nonnull final RedisConnection connection){
+        if(Proxy.isProxyClass(connection.getClass()) && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler){
+            return connection;
+        }
+        return (RedisConnection) Proxy.newProxyInstance(RedisMetrics.class.getClassLoader(),
+                ClassUtils.getAllInterfacesForClass(connection.getClass(), RedisMetrics.class.getClassLoader()),
+                new ConnectionHandler(connection));
+    }
+
+    /**
+     * 包装Redis连接工厂,其创建的连接统计命令耗时(用于不经过Redis模板的缓存管理器)
+     * @param connectionFactory
+     * Redis连接工厂
+     * @return 统计命令耗时的Redis连接工厂
+     */
+    public static RedisConnectionFactory instrument(@Nonnull final RedisConnectionFactory connectionFactory){
+        return (RedisConnectionFactory) Proxy.newProxyInstance(RedisMetrics.class.getClassLoader(),
+                new Class<?>[]{ RedisConnectionFactory.class }, (proxy, method, args) -> {
+                    final Object ret = invoke(connectionFactory, method, args);
+                    return ret instanceof RedisConnection && "getConnection".equals(method.getName()) ? instrument((RedisConnection) ret) : ret;
+                });
+    }
+
+    /**
+     * 记录序列化
+     * @param size
+     * 字节数
+     * @param nanos
+     * 耗时(纳秒)
+     */
+    static void serialized(final int size, final long nanos){
+        recordValue("serialize", size, nanos);
+    }
+
+    /**
+     * 记录反序列化
+     * @param size
+     * 字节数
+     * @param nanos
+     * 耗时(纳秒)
+     */
+    static void deserialized(final int size, final long nanos){
+        recordValue("deserialize", size, nanos);
+    }
+
+    /**
+     * 获取命令耗时(微秒)的统计快照
+     * @return "命令 键前缀"-统计快照
+     */
+    public static Map<String, Histogram.Snapshot> getCommandStats(){
+        return snapshot(COMMANDS);
+    }
+
+    /**
+     * 获取值字节数的统计快照
+     * @return 序列化/反序列化-统计快照
+     */
+    public static Map<String, Histogram.Snapshot> getSizeStats(){
+        return snapshot(SIZES);
+    }
+
+    /**
+     * 获取序列化耗时(微秒)的统计快照
+     * @return 序列化/反序列化-统计快照
+     */
+    public static Map<String, Histogram.Snapshot> getSerializeStats(){
+        return snapshot(SERIALIZE_TIMES);
+    }
+
+    /**
+     * 获取最近的大值记录
+     * @return 大值记录(由新到旧)
+     */
+    public static List<BigValue> getBigValues(){
+        synchronized (BIG_VALUES){
+            return new ArrayList<>(BIG_VALUES);
+        }
+    }
+
+    private static Map<String, Histogram.Snapshot> snapshot(@Nonnull final Map<String, Histogram> histograms){
+        final Map<String, Histogram.Snapshot> ret = new TreeMap<>();
+        histograms.forEach((name, histogram) -> ret.put(name, histogram.snapshot()));
+        return ret;
+    }
+
+    private static void recordValue(@Nonnull final String operation, final int size, final long nanos){
+        SIZES.computeIfAbsent(operation, k -> new Histogram()).record(size);
+        SERIALIZE_TIMES.computeIfAbsent(operation, k -> new Histogram()).record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * 记录大值(超过阈值时)
+     * @param command
+     * 命令
+     * @param key
+     * 键(可为null)
+     * @param size
+     * 字节数
+     */
+    private static void recordBigValue(@Nonnull final String command, final byte[] key, final long size){
+        final int threshold = bigValueThreshold;
+        if(threshold <= 0 || size < threshold){
+            return;
+        }
+        final String text = key == null ? null : new String(key, 0, Math.min(key.length, MAX_KEY), Constants.CHARSET);
+        log.warn("recordBigValue-发现大值: {} {}(size: {})", command, text, size);
+        synchronized (BIG_VALUES){
+            if(BIG_VALUES.size() >= MAX_BIG_VALUES){
+                BIG_VALUES.removeLast();
+            }
+            BIG_VALUES.addFirst(new BigValue(command, prefix(key), text, size));
+        }
+    }
+
+    /**
+     * 值的字节数(字节数组、字节数组的数组、集合及Map中的字节数组累加)
+     * @param value
+     * 值
+     * @return 字节数
+     */
+    private static long sizeOf(final Object value){
+        if(value instanceof byte[]){
+            return ((byte[]) value).length;
+        }
+        long size = 0;
+        if(value instanceof byte[][]){
+            for(byte[] item : (byte[][]) value){
+                size += item == null ? 0 : item.length;
+            }
+        }else if(value instanceof Collection){
+            for(Object item : (Collection<?>) value){
+                size += item instanceof byte[] ? ((byte[]) item).length : 0;
+            }
+        }else if(value instanceof Map){
+            for(Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()){
+                size += sizeOf(entry.getKey()) + sizeOf(entry.getValue());
+            }
+        }
+        return size;
+    }
+
+    /**
+     * 记录命令耗时
+     * @param command
+     * 命令
+     * @param key
+     * 键(可为null)
+     * @param nanos
+     * 耗时(纳秒)
+     */
+    private static void recordCommand(@Nonnull final String command, final byte[] key, final long nanos){
+        String name = command + " " + prefix(key);
+        Histogram histogram = COMMANDS.get(name);
+        if(histogram == null){
+            if(COMMANDS.size() >= MAX_STATS){
+                name = command + " " + OTHER;
+            }
+            histogram = COMMANDS.computeIfAbsent(name, k -> new Histogram());
+        }
+        histogram.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * 键前缀
+     * @param key
+     * 键
+     * @return 键前缀
+     */
+    private static String prefix(final byte[] key){
+        if(key == null || key.length == 0){
+            return "-";
+        }
+        final String text = new String(key, 0, Math.min(key.length, MAX_PREFIX), Constants.CHARSET);
+        final int colon = text.indexOf(':');
+        if(colon > 0){
+            return text.substring(0, colon);
+        }
+        final int underline = text.lastIndexOf('_');
+        return underline > 0 ? text.substring(0, underline + 1) : text;
+    }
+
+    private static Object invoke(@Nonnull final Object target, @Nonnull final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }catch (InvocationTargetException ex){
+            throw ex.getTargetException();
+        }
+    }
+
+    /**
+     * 统计命令耗时的连接代理
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+        private final RedisConnection target;
+
+        ConnectionHandler(@Nonnull final RedisConnection target){
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if(method.getDeclaringClass() == Object.class || EXCLUDED.contains(name)){
+                return RedisMetrics.invoke(target, method, args);
+            }
+            final boolean batch = "closePipeline".equals(name) || "exec".equals(name);
+            final byte[] key = batch ? null : key(name, args);
+            final String command = batch ? ("exec".equals(name) ? "EXEC" : "PIPELINE") : name.toUpperCase(Locale.ROOT);
+            if(WRITES.contains(name) && args != null){
+                //写入的值(键之后的参数)
+                long size = 0;
+                for(int i = 1; i < args.length; i++){
+                    size += sizeOf(args[i]);
+                }
+                recordBigValue(command, key, size);
+            }
+            if(!batch && (target.isPipelined() || target.isQueueing())){
+                return RedisMetrics.invoke(target, method, args);
+            }
+            final long start = System.nanoTime();
+            Object ret = null;
+            try {
+                ret = RedisMetrics.invoke(target, method, args);
+                return ret;
+            }finally {
+                recordCommand(command, key, System.nanoTime() - start);
+                if(ret != null && !batch && !WRITES.contains(name)){
+                    //读取的结果
+                    recordBigValue(command, key, sizeOf(ret));
+                }
+            }
+        }
+
+        /**
+         * 命令的第一个键
+         * @param name
+         * 方法名
+         * @param args
+         * 方法参数
+         * @return 第一个键(无法确定时返回null)
+         */
+        private static byte[] key(@Nonnull final String name, final Object[] args){
+            if(args == null || args.length == 0){
+                return null;
+            }
+            if(name.startsWith("eval")){
+                //eval(script, returnType, numKeys, keysAndArgs)
+                if(args.length >= 4 && args[2] instanceof Integer && (Integer) args[2] > 0 && args[3] instanceof byte[][]){
+                    final byte[][] keysAndArgs = (byte[][]) args[3];
+                    return keysAndArgs.length > 0 ? keysAndArgs[0] : null;
+                }
+                return null;
+            }
+            if(args[0] instanceof byte[]){
+                return (byte[]) args[0];
+            }
+            if(args[0] instanceof byte[][]){
+                final byte[][] keys = (byte[][]) args[0];
+                return keys.length > 0 ? keys[0] : null;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 大值记录
+     */
+    @Getter
+    @ToString
+    public static class BigValue {
+        /**
+         * 命令
+         */
+        private final String command;
+        /**
+         * 键前缀
+         */
+        private final String prefix;
+        /**
+         * 键(多键命令为第一个键,超长时截断)
+         */
+        private final String key;
+        /**
+         * 字节数
+         */
+        private final long size;
+        /**
+         * 记录时间
+         */
+        private final long time = System.currentTimeMillis();
+
+        BigValue(final String command, final String prefix, final String key, final long size){
+            this.command = command;
+            this.prefix = prefix;
+            this.key = key;
+            this.size = size;
+        }
+    }
+}
@@ -74,6 +74,10 @@ public enum RespStatus implements Serializable {
      * 签名错误
      */
     ErrWithSign(161,"签名错误"),
+    /**
+     * 请求过于频繁
+     */
+    ErrWithRateLimit(429, "请求过于频繁"),
     /**
      * 服务器错误
      */
@@ -81,7 +85,11 @@ public enum RespStatus implements Serializable {
     /**
      * 校验报文错误
      */
-    ErrWithProtocolVerify(501,"校验报文错误");
+    ErrWithProtocolVerify(501,"校验报文错误"),
+    /**
+     * 服务繁忙
+     */
+    ErrWithBusy(503,"服务繁忙");
 
     private final int code;
     private final String msg;
@@ -0,0 +1,326 @@
+package org.young.common.queue;
+
+import com.alibaba.fastjson.JSON;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+import org.young.common.util.RedisUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis延迟任务队列
+ * <p>
+ *     任务数据保存在哈希 key:jobs 中,任务ID以到期时间(毫秒)为分值登记在有序集合 key 中;
+ *     轮询时通过lua脚本将到期的任务ID原子地移入就绪列表 key:ready,再批量弹出就绪任务并处理,
+ *     脚本同时返回最近一个未到期任务的到期时间,空闲节点据此休眠,不会空转。
+ * </p>
+ * <p>
+ *     任务弹出后即删除,处理异常只记录日志(至多一次);新任务的到期时间早于休眠截止时间时,
+ *     最迟在 maxIdle 后被处理。任务到期判断依赖各节点时钟基本一致。
+ * </p>
+ *
+ * @param <T>
+ *     任务数据类型
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisDelayQueue<T extends Serializable> implements AutoCloseable {
+    /**
+     * 任务数据键后缀
+     */
+    private static final String JOBS_SUFFIX = ":jobs";
+    /**
+     * 就绪列表键后缀
+     */
+    private static final String READY_SUFFIX = ":ready";
+
+    /**
+     * 登记任务的lua脚本
+     * <p>
+     *     KEYS[1]: 延迟集合; KEYS[2]: 任务数据; ARGV[1]: 任务ID; ARGV[2]: 到期时间(毫秒); ARGV[3]: 任务数据。
+     * </p>
+     */
+    public static final String SCHEDULE_LUA;
+    /**
+     * 取消任务的lua脚本
+     * <p>
+     *     KEYS[1]: 延迟集合; KEYS[2]: 任务数据; ARGV[1]: 任务ID。返回是否取消成功(1/0)。
+     * </p>
+     */
+    public static final String CANCEL_LUA;
+    /**
+     * 移动到期任务的lua脚本
+     * <p>
+     *     KEYS[1]: 延迟集合; KEYS[2]: 就绪列表; ARGV[1]: 当前时间(毫秒); ARGV[2]: 最大移动数量。
+     *     返回 {移动数量, 最近一个未到期任务的到期时间(无任务时为-1)}。
+     * </p>
+     */
+    public static final String MOVE_LUA;
+    /**
+     * 批量弹出就绪任务的lua脚本
+     * <p>
+     *     KEYS[1]: 就绪列表; KEYS[2]: 任务数据; ARGV[1]: 弹出数量。返回 {任务ID, 任务数据, ...}(跳过已取消的任务)。
+     * </p>
+     */
+    public static final String POP_LUA;
+
+    private static final RedisScriptRegistry.Script SCHEDULE_SCRIPT;
+    private static final RedisScriptRegistry.Script CANCEL_SCRIPT;
+    private static final RedisScriptRegistry.Script MOVE_SCRIPT;
+    private static final RedisScriptRegistry.Script POP_SCRIPT;
+
+    static {
+        SCHEDULE_LUA = "redis.call(\"hset\",KEYS[2],ARGV[1],ARGV[3]) " +
+                "redis.call(\"zadd\",KEYS[1],ARGV[2],ARGV[1]) " +
+                "return 1 ";
+        CANCEL_LUA = "redis.call(\"hdel\",KEYS[2],ARGV[1]) " +
+                "return redis.call(\"zrem\",KEYS[1],ARGV[1]) ";
+        MOVE_LUA = "local due = redis.call(\"zrangebyscore\",KEYS[1],\"-inf\",ARGV[1],\"LIMIT\",0,tonumber(ARGV[2])) " +
+                "if #due > 0 " +
+                "then " +
+                "    redis.call(\"rpush\",KEYS[2],unpack(due)) " +
+                "    redis.call(\"zrem\",KEYS[1],unpack(due)) " +
+                "end " +
+                "local head = redis.call(\"zrange\",KEYS[1],0,0,\"WITHSCORES\") " +
+                "return {#due, head[2] or \"-1\"} ";
+        POP_LUA = "local ids = redis.call(\"lrange\",KEYS[1],0,tonumber(ARGV[1]) - 1) " +
+                "local items = {} " +
+                "if #ids > 0 " +
+                "then " +
+                "    redis.call(\"ltrim\",KEYS[1],#ids,-1) " +
+                "    for _, id in ipairs(ids) do " +
+                "        local data = redis.call(\"hget\",KEYS[2],id) " +
+                "        if data " +
+                "        then " +
+                "            redis.call(\"hdel\",KEYS[2],id) " +
+                "            items[#items + 1] = id " +
+                "            items[#items + 1] = data " +
+                "        end " +
+                "    end " +
+                "end " +
+                "return items ";
+        SCHEDULE_SCRIPT = RedisScriptRegistry.register(SCHEDULE_LUA);
+        CANCEL_SCRIPT = RedisScriptRegistry.register(CANCEL_LUA);
+        MOVE_SCRIPT = RedisScriptRegistry.register(MOVE_LUA);
+        POP_SCRIPT = RedisScriptRegistry.register(POP_LUA);
+    }
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    /**
+     * 延迟集合键
+     */
+    @Getter
+    private final String key;
+    /**
+     * 任务数据类型
+     */
+    private final Class<T> clazz;
+    private final byte[] delayKey, jobsKey, readyKey;
+
+    /**
+     * 每批处理的任务数量
+     */
+    @Getter
+    @Setter
+    private int batchSize = 100;
+    /**
+     * 最长空闲休眠时间(ms 毫秒)
+     */
+    @Getter
+    @Setter
+    private long maxIdle = TimeUnit.SECONDS.toMillis(1);
+
+    /**
+     * 运行标记
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    /**
+     * 消费线程
+     */
+    private Thread worker;
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * Redis操作模板
+     * @param key
+     * 延迟集合键
+     * @param clazz
+     * 任务数据类型
+     */
+    public RedisDelayQueue(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, @Nonnull final Class<T> clazz){
+        log.debug("RedisDelayQueue(key: {}, clazz: {})...", key, clazz);
+        Assert.hasText(key, "'key'不能为空!");
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.clazz = clazz;
+        this.delayKey = bytes(key);
+        this.jobsKey = bytes(key + JOBS_SUFFIX);
+        this.readyKey = bytes(key + READY_SUFFIX);
+    }
+
+    /**
+     * 登记延迟任务
+     * @param data
+     * 任务数据
+     * @param delay
+     * 延迟时间
+     * @param unit
+     * 时间单位
+     * @return 任务ID
+     */
+    public String schedule(@Nonnull final T data, final long delay, @Nonnull final TimeUnit unit){
+        log.debug("schedule(key: {}, data: {}, delay: {}, unit: {})...", key, data, delay, unit);
+        final String id = UUID.randomUUID().toString();
+        final long due = System.currentTimeMillis() + unit.toMillis(Math.max(delay, 0));
+        RedisScriptRegistry.eval(redisTemplate, SCHEDULE_SCRIPT, ReturnType.INTEGER, 2,
+                delayKey, jobsKey, bytes(id), bytes(String.valueOf(due)), bytes(JSON.toJSONString(data)));
+        return id;
+    }
+
+    /**
+     * 取消尚未到期的任务
+     * @param id
+     * 任务ID
+     * @return 是否取消成功
+     */
+    public boolean cancel(@Nonnull final String id){
+        log.debug("cancel(key: {}, id: {})...", key, id);
+        final Long ret = RedisScriptRegistry.eval(redisTemplate, CANCEL_SCRIPT, ReturnType.INTEGER, 2, delayKey, jobsKey, bytes(id));
+        return ret != null && ret > 0;
+    }
+
+    /**
+     * 处理一批到期任务
+     * @param handler
+     * 任务处理器
+     * @return 下一次轮询前建议的休眠时间(ms 毫秒,0表示立即继续)
+     */
+    public long poll(@Nonnull final JobHandler<T> handler){
+        final long now = System.currentTimeMillis();
+        final List<Object> moved = RedisScriptRegistry.eval(redisTemplate, MOVE_SCRIPT, ReturnType.MULTI, 2,
+                delayKey, readyKey, bytes(String.valueOf(now)), bytes(String.valueOf(batchSize)));
+        final List<byte[]> items = RedisScriptRegistry.eval(redisTemplate, POP_SCRIPT, ReturnType.MULTI, 2,
+                readyKey, jobsKey, bytes(String.valueOf(batchSize)));
+        final int count = items == null ? 0 : items.size() / 2;
+        for(int i = 0; i < count; i++){
+            final String id = new String(items.get(2 * i), Constants.CHARSET);
+            try {
+                final T data = RedisUtils.parseObject(new String(items.get(2 * i + 1), Constants.CHARSET), clazz);
+                if(data != null){
+                    handler.hander(id, data);
+                }
+            }catch (Throwable e){
+                log.warn("poll(key: "+ key +", id: "+ id +")-exp:" + e.getMessage(), e);
+            }
+        }
+        if(count >= batchSize || moved == null || moved.size() < 2){
+            //可能还有未处理的任务
+            return 0;
+        }
+        final long movedCount = moved.get(0) instanceof Long ? (Long) moved.get(0) : 0;
+        if(movedCount >= batchSize){
+            return 0;
+        }
+        final Object head = moved.get(1);
+        final long next = head instanceof byte[] ? (long) Double.parseDouble(new String((byte[]) head, Constants.CHARSET)) : -1;
+        if(next < 0){
+            return maxIdle;
+        }
+        return Math.min(Math.max(next - System.currentTimeMillis(), 0), maxIdle);
+    }
+
+    /**
+     * 启动消费线程
+     * @param handler
+     * 任务处理器
+     */
+    public synchronized void start(@Nonnull final JobHandler<T> handler){
+        log.debug("start(key: {})...", key);
+        if(!running.compareAndSet(false, true)){
+            return;
+        }
+        worker = new Thread(() -> consume(handler), "redis-delay-" + key);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 停止消费线程
+     */
+    @Override
+    public synchronized void close(){
+        if(!running.compareAndSet(true, false) || worker == null){
+            return;
+        }
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        worker = null;
+    }
+
+    /**
+     * 消费循环
+     * @param handler
+     * 任务处理器
+     */
+    private void consume(@Nonnull final JobHandler<T> handler){
+        while (running.get()){
+            try {
+                final long sleep = poll(handler);
+                if(sleep > 0){
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }catch (Throwable ex){
+                log.error("consume(key: "+ key +")-exp:" + ex.getMessage(), ex);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(maxIdle);
+                }catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    private static byte[] bytes(@Nonnull final String value){
+        return value.getBytes(Constants.CHARSET);
+    }
+
+    /**
+     * 任务处理器
+     * @param <T>
+     *     任务数据类型
+     */
+    public interface JobHandler<T extends Serializable> {
+
+        /**
+         * 任务处理
+         * @param id
+         * 任务ID
+         * @param data
+         * 任务数据
+         * @throws Exception
+         * 处理异常
+         */
+        void hander(@NonNull final String id, @NonNull final T data) throws Exception;
+    }
+}
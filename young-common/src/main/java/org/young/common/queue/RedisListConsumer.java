@@ -0,0 +1,292 @@
+package org.young.common.queue;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+import org.young.common.util.RedisUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis列表队列批量消费者
+ * <p>
+ *     每次通过一次lua脚本调用(LRANGE + LTRIM)从列表头部弹出一批元素,再分发到有界线程池并行处理;
+ *     线程池队列满时由调用线程直接处理(背压),弹出速度不会超过处理速度。
+ *     每个元素的处理异常单独捕获记录,不影响其他元素。
+ * </p>
+ * <p>
+ *     元素弹出后即从列表中删除,消费进程在处理过程中宕机时未处理完的元素会丢失(至多一次),与 LPOP 语义一致。
+ *     关闭消费者后不再弹出元素,已弹出但未开始处理的元素按原顺序放回列表头部。
+ * </p>
+ *
+ * @param <T>
+ *     元素数据类型
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisListConsumer<T extends Serializable> implements AutoCloseable {
+    /**
+     * 批量弹出的lua脚本
+     * <p>
+     *     KEYS[1]: 列表键; ARGV[1]: 弹出数量。
+     * </p>
+     */
+    public static final String POP_LUA;
+    /**
+     * 批量弹出脚本
+     */
+    private static final RedisScriptRegistry.Script POP_SCRIPT;
+    /**
+     * 默认每批弹出的元素数量
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    static {
+        POP_LUA = "local items = redis.call(\"lrange\",KEYS[1],0,tonumber(ARGV[1]) - 1) " +
+                "if #items > 0 " +
+                "then " +
+                "    redis.call(\"ltrim\",KEYS[1],#items,-1) " +
+                "end " +
+                "return items ";
+        POP_SCRIPT = RedisScriptRegistry.register(POP_LUA);
+    }
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    private final String key;
+    private final Class<T> clazz;
+    private final RedisUtils.ReadCacheHandler<T> handler;
+    private final int batchSize;
+    /**
+     * 处理线程池
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * Redis操作模板
+     * @param key
+     * 列表键
+     * @param clazz
+     * 元素数据类型
+     * @param handler
+     * 元素处理器
+     * @param parallelism
+     * 并行处理的线程数
+     * @param batchSize
+     * 每批弹出的元素数量
+     */
+    public RedisListConsumer(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, @Nonnull final Class<T> clazz,
+                             @Nonnull final RedisUtils.ReadCacheHandler<T> handler, final int parallelism, final int batchSize){
+        log.debug("RedisListConsumer(key: {}, clazz: {}, parallelism: {}, batchSize: {})...", key, clazz, parallelism, batchSize);
+        Assert.hasText(key, "'key'不能为空!");
+        Assert.isTrue(parallelism > 0, "'parallelism'必须大于0!");
+        Assert.isTrue(batchSize > 0, "'batchSize'必须大于0!");
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.clazz = clazz;
+        this.handler = handler;
+        this.batchSize = batchSize;
+        final AtomicInteger seq = new AtomicInteger(0);
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * 2),
+                r -> {
+                    final Thread thread = new Thread(r, "redis-list-consumer-" + seq.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (r, pool) -> {
+                    //线程池已关闭时拒绝提交(由提交方放回元素),否则由调用线程直接处理
+                    if(pool.isShutdown()){
+                        throw new RejectedExecutionException("处理线程池已关闭!");
+                    }
+                    r.run();
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 构造函数(默认每批弹出 {@link #DEFAULT_BATCH_SIZE} 个元素)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param key
+     * 列表键
+     * @param clazz
+     * 元素数据类型
+     * @param handler
+     * 元素处理器
+     * @param parallelism
+     * 并行处理的线程数
+     */
+    public RedisListConsumer(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, @Nonnull final Class<T> clazz,
+                             @Nonnull final RedisUtils.ReadCacheHandler<T> handler, final int parallelism){
+        this(redisTemplate, key, clazz, handler, parallelism, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * 消费列表中的全部元素,直至列表为空且已弹出的元素全部处理完成
+     * @return 处理的元素数量
+     */
+    public long drain(){
+        log.debug("drain(key: {})...", key);
+        final Long size = redisTemplate.opsForList().size(key);
+        final long totals = size == null ? 0 : size;
+        final AtomicLong index = new AtomicLong(0), processed = new AtomicLong(0);
+        final Phaser phaser = new Phaser(1);
+        try {
+            List<byte[]> items;
+            //关闭后不再弹出元素
+            while (!executor.isShutdown() && !(items = pop()).isEmpty()){
+                for(int i = 0; i < items.size(); i++){
+                    final Task task = new Task(index.incrementAndGet(), totals, items.get(i), phaser, processed);
+                    phaser.register();
+                    try {
+                        executor.execute(task);
+                    }catch (Throwable ex){
+                        phaser.arriveAndDeregister();
+                        log.warn("drain(key: "+ key +", index: "+ task.index +")-提交处理失败:" + ex.getMessage());
+                        //未提交的元素放回列表
+                        pushBack(items.subList(i, items.size()));
+                        break;
+                    }
+                }
+            }
+        }catch (Throwable ex){
+            log.error("drain(key: "+ key +")-exp:" + ex.getMessage(), ex);
+        }finally {
+            //等待已弹出的元素处理完成
+            phaser.arriveAndAwaitAdvance();
+        }
+        return processed.get();
+    }
+
+    /**
+     * 弹出一批元素
+     * @return 元素集合(序列化后的字节)
+     */
+    private List<byte[]> pop(){
+        final List<byte[]> items = RedisScriptRegistry.eval(redisTemplate, POP_SCRIPT, ReturnType.MULTI, 1,
+                key.getBytes(Constants.CHARSET), String.valueOf(batchSize).getBytes(Constants.CHARSET));
+        return items == null ? Collections.emptyList() : items;
+    }
+
+    /**
+     * 将未处理的元素按原顺序放回列表头部
+     * @param items
+     * 元素集合(序列化后的字节)
+     */
+    private void pushBack(@Nonnull final List<byte[]> items){
+        if(items.isEmpty()){
+            return;
+        }
+        final byte[][] values = new byte[items.size()][];
+        for(int i = 0; i < values.length; i++){
+            //LPUSH 逐个插入头部,逆序插入后保持原顺序
+            values[i] = items.get(items.size() - 1 - i);
+        }
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.lPush(key.getBytes(Constants.CHARSET), values));
+            log.info("pushBack(key: {})-放回元素: {}", key, values.length);
+        }catch (Throwable ex){
+            log.error("pushBack(key: "+ key +", count: "+ values.length +")-放回元素失败:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 处理单个元素(异常只记录日志)
+     * @param index
+     * 元素索引
+     * @param totals
+     * 开始消费时的列表长度
+     * @param item
+     * 元素(序列化后的字节)
+     */
+    private void handle(final long index, final long totals, @Nonnull final byte[] item){
+        try {
+            final RedisSerializer<?> serializer = redisTemplate.getValueSerializer();
+            final Object obj = serializer == null ? new String(item, Constants.CHARSET) : serializer.deserialize(item);
+            final T data = obj == null ? null : RedisUtils.parseObject(obj, clazz);
+            if(data != null){
+                handler.hander(index, totals, data);
+            }
+        }catch (Throwable e){
+            log.warn("handle(key: "+ key +", index: "+ index +", totals: "+ totals +")-exp:" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 关闭处理线程池(等待已提交的元素处理完成,超时后放回尚未开始处理的元素)
+     */
+    @Override
+    public void close(){
+        executor.shutdown();
+        try {
+            if(!executor.awaitTermination(30, TimeUnit.SECONDS)){
+                shutdownNow();
+            }
+        }catch (InterruptedException e){
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 立即停止处理线程池,尚未开始处理的元素放回列表
+     */
+    private void shutdownNow(){
+        final List<byte[]> items = new ArrayList<>();
+        for(Runnable r : executor.shutdownNow()){
+            if(r instanceof RedisListConsumer<?>.Task){
+                final RedisListConsumer<?>.Task task = (RedisListConsumer<?>.Task) r;
+                items.add(task.item);
+                task.phaser.arriveAndDeregister();
+            }
+        }
+        pushBack(items);
+    }
+
+    /**
+     * 单个元素的处理任务
+     */
+    private class Task implements Runnable {
+        private final long index;
+        private final long totals;
+        private final byte[] item;
+        private final Phaser phaser;
+        private final AtomicLong processed;
+
+        Task(final long index, final long totals, @Nonnull final byte[] item, @Nonnull final Phaser phaser, @Nonnull final AtomicLong processed){
+            this.index = index;
+            this.totals = totals;
+            this.item = item;
+            this.phaser = phaser;
+            this.processed = processed;
+        }
+
+        @Override
+        public void run() {
+            try {
+                handle(index, totals, item);
+                processed.incrementAndGet();
+            } finally {
+                phaser.arriveAndDeregister();
+            }
+        }
+    }
+}
@@ -0,0 +1,599 @@
+package org.young.common.queue;
+
+import com.alibaba.fastjson.JSON;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.cluster.api.async.RedisClusterAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.lettuce.core.output.NestedMultiOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+import org.young.common.util.RedisScriptRegistry;
+import org.young.common.util.RedisUtils;
+
+import javax.annotation.Nonnull;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Redis Streams可靠工作队列(消费组)
+ * <p>
+ *     生产者通过 XADD 写入消息(字段 data 为消息的JSON);
+ *     消费者以消费组方式通过 XREADGROUP 批量读取,处理成功后 XACK 确认,处理失败或消费者宕机时消息留在待确认列表中;
+ *     消费者定期检查待确认列表,通过 XCLAIM 接管空闲超过 minIdle 的消息重新处理,
+ *     投递次数超过 maxDeliveries 的消息转入死信流(streamKey:dead)并确认,避免毒消息反复投递。
+ * </p>
+ * <p>
+ *     多个节点使用同一消费组即可水平扩展,每条消息只投递给组内的一个消费者,至少处理一次,处理器应保证幂等。
+ *     消费者名称为"主机名-序号",重启后沿用原名称;没有待确认消息且空闲超过 consumerExpire 的消费者在接管检查时删除,
+ *     关闭队列时删除本节点没有待确认消息的消费者,避免消费组内的消费者无限增长。
+ * </p>
+ * <p>
+ *     需 Redis 5.0 及以上。XREADGROUP 不在lua脚本内执行,通过 Lettuce 直接发送
+ *     (Lettuce 5.0 的命令枚举不含 Streams 命令,不能经 RedisConnection#execute 发送),
+ *     写入、接管、确认及死信转移仍通过lua脚本执行。
+ *     block 大于0时以 BLOCK 阻塞读取新消息,阻塞期间独占连接,
+ *     只能用于不共享本地连接的连接工厂(LettuceConnectionFactory#setShareNativeConnection(false));
+ *     block 小于等于0时无消息按 pollInterval 轮询。
+ * </p>
+ *
+ * @param <T>
+ *     消息数据类型
+ * @author jeasonyoung
+ */
+@Slf4j
+public class RedisStreamQueue<T extends Serializable> implements AutoCloseable {
+    /**
+     * 消息数据字段
+     */
+    private static final String FIELD_DATA = "data";
+    /**
+     * 死信流键后缀
+     */
+    private static final String DEAD_SUFFIX = ":dead";
+    /**
+     * 读取命令在阻塞时间之外的超时时间(ms 毫秒)
+     */
+    private static final long READ_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * 写入消息的lua脚本
+     * <p>
+     *     KEYS[1]: 流键; ARGV[1]: 最大长度(小于等于0时不裁剪); ARGV[2]: 消息数据。返回消息ID。
+     * </p>
+     */
+    public static final String ADD_LUA;
+    /**
+     * 创建消费组的lua脚本(消费组已存在时忽略)
+     * <p>
+     *     KEYS[1]: 流键; ARGV[1]: 消费组。
+     * </p>
+     */
+    public static final String CREATE_GROUP_LUA;
+    /**
+     * 确认消息的lua脚本
+     * <p>
+     *     KEYS[1]: 流键; ARGV[1]: 消费组; ARGV[2..]: 消息ID。
+     * </p>
+     */
+    public static final String ACK_LUA;
+    /**
+     * 接管空闲消息的lua脚本
+     * <p>
+     *     KEYS[1]: 流键; KEYS[2]: 死信流键; ARGV[1]: 消费组; ARGV[2]: 消费者; ARGV[3]: 最小空闲时间(毫秒);
+     *     ARGV[4]: 检查数量; ARGV[5]: 最大投递次数。
+     *     返回 {消息ID, 消息数据, 消息ID, 消息数据, ...}。
+     * </p>
+     */
+    public static final String CLAIM_LUA;
+    /**
+     * 删除空闲消费者的lua脚本(只删除没有待确认消息的消费者)
+     * <p>
+     *     KEYS[1]: 流键; ARGV[1]: 消费组; ARGV[2]: 最小空闲时间(毫秒); ARGV[3..]: 限定的消费者(缺省时检查全部消费者)。
+     *     返回删除的消费者数量。
+     * </p>
+     */
+    public static final String PRUNE_LUA;
+
+    private static final RedisScriptRegistry.Script ADD_SCRIPT;
+    private static final RedisScriptRegistry.Script CREATE_GROUP_SCRIPT;
+    private static final RedisScriptRegistry.Script ACK_SCRIPT;
+    private static final RedisScriptRegistry.Script CLAIM_SCRIPT;
+    private static final RedisScriptRegistry.Script PRUNE_SCRIPT;
+
+    static {
+        ADD_LUA = "if tonumber(ARGV[1]) > 0 " +
+                "then " +
+                "    return redis.call(\"xadd\",KEYS[1],\"MAXLEN\",\"~\",ARGV[1],\"*\",\"" + FIELD_DATA + "\",ARGV[2]) " +
+                "end " +
+                "return redis.call(\"xadd\",KEYS[1],\"*\",\"" + FIELD_DATA + "\",ARGV[2]) ";
+        CREATE_GROUP_LUA = "local ret = redis.pcall(\"xgroup\",\"CREATE\",KEYS[1],ARGV[1],\"0\",\"MKSTREAM\") " +
+                "if type(ret) == \"table\" and ret.err and not string.find(ret.err, \"BUSYGROUP\") " +
+                "then " +
+                "    return redis.error_reply(ret.err) " +
+                "end " +
+                "return 1 ";
+        //消息条目 {id, {field, value, ...}} 展开为 id, data
+        final String flatten = "local function flatten(entries, items) " +
+                "    for _, e in ipairs(entries) do " +
+                "        if type(e) == \"table\" and type(e[2]) == \"table\" " +
+                "        then " +
+                "            local data = \"\" " +
+                "            for i = 1, #e[2], 2 do " +
+                "                if e[2][i] == \"" + FIELD_DATA + "\" then data = e[2][i + 1] end " +
+                "            end " +
+                "            items[#items + 1] = e[1] " +
+                "            items[#items + 1] = data " +
+                "        end " +
+                "    end " +
+                "    return items " +
+                "end ";
+        ACK_LUA = "local ids = {} " +
+                "for i = 2, #ARGV do ids[#ids + 1] = ARGV[i] end " +
+                "if #ids == 0 then return 0 end " +
+                "return redis.call(\"xack\",KEYS[1],ARGV[1],unpack(ids)) ";
+        CLAIM_LUA = "redis.replicate_commands() " + flatten +
+                "local pending = redis.call(\"xpending\",KEYS[1],ARGV[1],\"-\",\"+\",ARGV[4]) " +
+                "local ids = {} " +
+                "for _, p in ipairs(pending) do " +
+                "    if tonumber(p[3]) >= tonumber(ARGV[3]) " +
+                "    then " +
+                "        if tonumber(p[4]) > tonumber(ARGV[5]) " +
+                "        then " +
+                "            local msg = redis.call(\"xrange\",KEYS[1],p[1],p[1]) " +
+                "            for _, e in ipairs(msg) do " +
+                "                redis.call(\"xadd\",KEYS[2],\"*\",unpack(e[2])) " +
+                "            end " +
+                "            redis.call(\"xack\",KEYS[1],ARGV[1],p[1]) " +
+                "        else " +
+                "            ids[#ids + 1] = p[1] " +
+                "        end " +
+                "    end " +
+                "end " +
+                "if #ids == 0 then return {} end " +
+                "return flatten(redis.call(\"xclaim\",KEYS[1],ARGV[1],ARGV[2],ARGV[3],unpack(ids)), {}) ";
+        PRUNE_LUA = "redis.replicate_commands() " +
+                "local only = {} " +
+                "for i = 3, #ARGV do only[ARGV[i]] = true end " +
+                "local n = 0 " +
+                "for _, c in ipairs(redis.call(\"xinfo\",\"CONSUMERS\",KEYS[1],ARGV[1])) do " +
+                "    local info = {} " +
+                "    for i = 1, #c, 2 do info[c[i]] = c[i + 1] end " +
+                "    if tonumber(info[\"pending\"]) == 0 and tonumber(info[\"idle\"]) >= tonumber(ARGV[2]) " +
+                "        and (#ARGV < 3 or only[info[\"name\"]]) " +
+                "    then " +
+                "        redis.call(\"xgroup\",\"DELCONSUMER\",KEYS[1],ARGV[1],info[\"name\"]) " +
+                "        n = n + 1 " +
+                "    end " +
+                "end " +
+                "return n ";
+        ADD_SCRIPT = RedisScriptRegistry.register(ADD_LUA);
+        CREATE_GROUP_SCRIPT = RedisScriptRegistry.register(CREATE_GROUP_LUA);
+        ACK_SCRIPT = RedisScriptRegistry.register(ACK_LUA);
+        CLAIM_SCRIPT = RedisScriptRegistry.register(CLAIM_LUA);
+        PRUNE_SCRIPT = RedisScriptRegistry.register(PRUNE_LUA);
+    }
+
+    private final RedisTemplate<Object, Object> redisTemplate;
+    /**
+     * 流键
+     */
+    @Getter
+    private final String streamKey;
+    /**
+     * 消费组
+     */
+    @Getter
+    private final String group;
+    /**
+     * 消息数据类型
+     */
+    private final Class<T> clazz;
+
+    /**
+     * 流的最大长度(近似裁剪,小于等于0时不裁剪)
+     */
+    @Getter
+    @Setter
+    private long maxLen = 0;
+    /**
+     * 每批读取的消息数量
+     */
+    @Getter
+    @Setter
+    private int batchSize = 100;
+    /**
+     * 待确认消息空闲多久后可被接管(ms 毫秒)
+     */
+    @Getter
+    @Setter
+    private long minIdle = TimeUnit.MINUTES.toMillis(1);
+    /**
+     * 最大投递次数(超过后转入死信流)
+     */
+    @Getter
+    @Setter
+    private int maxDeliveries = 16;
+    /**
+     * 无消息时的轮询间隔(ms 毫秒)
+     */
+    @Getter
+    @Setter
+    private long pollInterval = 200;
+    /**
+     * 无消息时阻塞读取的最长时间(ms 毫秒,小于等于0时不阻塞)
+     * <p>
+     *     阻塞读取独占连接,只能用于不共享本地连接的连接工厂。
+     * </p>
+     */
+    @Getter
+    @Setter
+    private long block = 0;
+    /**
+     * 检查待确认消息的间隔(ms 毫秒)
+     */
+    @Getter
+    @Setter
+    private long reclaimInterval = TimeUnit.SECONDS.toMillis(30);
+    /**
+     * 没有待确认消息的消费者空闲多久后删除(ms 毫秒)
+     */
+    @Getter
+    @Setter
+    private long consumerExpire = TimeUnit.MINUTES.toMillis(10);
+    /**
+     * 消费者名称前缀(默认为主机名)
+     */
+    @Getter
+    @Setter
+    private String consumerPrefix = hostName();
+
+    /**
+     * 运行标记
+     */
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    /**
+     * 消费线程
+     */
+    private final List<Thread> workers = new ArrayList<>();
+    /**
+     * 本节点的消费者名称
+     */
+    private final List<String> consumers = new ArrayList<>();
+
+    /**
+     * 构造函数
+     * @param redisTemplate
+     * Redis操作模板
+     * @param streamKey
+     * 流键
+     * @param group
+     * 消费组
+     * @param clazz
+     * 消息数据类型
+     */
+    public RedisStreamQueue(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String streamKey, @Nonnull final String group, @Nonnull final Class<T> clazz){
+        log.debug("RedisStreamQueue(streamKey: {}, group: {}, clazz: {})...", streamKey, group, clazz);
+        Assert.hasText(streamKey, "'streamKey'不能为空!");
+        Assert.hasText(group, "'group'不能为空!");
+        this.redisTemplate = redisTemplate;
+        this.streamKey = streamKey;
+        this.group = group;
+        this.clazz = clazz;
+    }
+
+    /**
+     * 写入消息
+     * @param data
+     * 消息数据
+     * @return 消息ID
+     */
+    public String add(@Nonnull final T data){
+        log.debug("add(streamKey: {}, data: {})...", streamKey, data);
+        final byte[] id = RedisScriptRegistry.eval(redisTemplate, ADD_SCRIPT, ReturnType.VALUE, 1,
+                bytes(streamKey), bytes(String.valueOf(maxLen)), bytes(JSON.toJSONString(data)));
+        return id == null ? null : new String(id, Constants.CHARSET);
+    }
+
+    /**
+     * 创建消费组(从流的开头消费,消费组已存在时忽略)
+     */
+    public void createGroup(){
+        log.debug("createGroup(streamKey: {}, group: {})...", streamKey, group);
+        RedisScriptRegistry.eval(redisTemplate, CREATE_GROUP_SCRIPT, ReturnType.INTEGER, 1, bytes(streamKey), bytes(group));
+    }
+
+    /**
+     * 以指定消费者读取并处理一批新消息,处理成功的消息批量确认
+     * @param consumer
+     * 消费者名称
+     * @param handler
+     * 消息处理器
+     * @return 读取的消息数量
+     */
+    public int poll(@Nonnull final String consumer, @Nonnull final StreamHandler<T> handler){
+        return process(read(consumer), handler);
+    }
+
+    /**
+     * 以指定消费者通过 XREADGROUP 读取一批新消息(block 大于0时阻塞等待)
+     * @param consumer
+     * 消费者名称
+     * @return {消息ID, 消息数据, ...}
+     */
+    @SuppressWarnings("unchecked")
+    private List<byte[]> read(@Nonnull final String consumer){
+        final CommandArgs<byte[], byte[]> args = new CommandArgs<>(ByteArrayCodec.INSTANCE)
+                .add("GROUP").add(bytes(group)).add(bytes(consumer))
+                .add("COUNT").add(batchSize);
+        if(block > 0){
+            args.add("BLOCK").add(block);
+        }
+        args.add("STREAMS").addKey(bytes(streamKey)).add(">");
+        final List<Object> ret = redisTemplate.execute((RedisCallback<List<Object>>) connection -> {
+            final Object nativeConnection = connection.getNativeConnection();
+            Assert.state(nativeConnection instanceof RedisClusterAsyncCommands, "XREADGROUP 需要 Lettuce 连接!");
+            final RedisFuture<List<Object>> future = ((RedisClusterAsyncCommands<byte[], byte[]>) nativeConnection)
+                    .dispatch(StreamCommand.XREADGROUP, new NestedMultiOutput<>(ByteArrayCodec.INSTANCE), args);
+            return LettuceFutures.awaitOrCancel(future, Math.max(block, 0) + READ_TIMEOUT, TimeUnit.MILLISECONDS);
+        });
+        //{{流键, {{消息ID, {字段, 值, ...}}, ...}}} 展开为 消息ID, 消息数据
+        final List<byte[]> items = new ArrayList<>();
+        if(ret == null || ret.isEmpty() || !(ret.get(0) instanceof List)){
+            return items;
+        }
+        final List<Object> stream = (List<Object>) ret.get(0);
+        if(stream.size() < 2 || !(stream.get(1) instanceof List)){
+            return items;
+        }
+        for(Object entry : (List<Object>) stream.get(1)){
+            if(!(entry instanceof List) || ((List<Object>) entry).size() < 2 || !(((List<Object>) entry).get(1) instanceof List)){
+                continue;
+            }
+            final List<Object> fields = (List<Object>) ((List<Object>) entry).get(1);
+            byte[] data = new byte[0];
+            for(int i = 0; i + 1 < fields.size(); i += 2){
+                if(FIELD_DATA.equals(new String((byte[]) fields.get(i), Constants.CHARSET))){
+                    data = (byte[]) fields.get(i + 1);
+                }
+            }
+            items.add((byte[]) ((List<Object>) entry).get(0));
+            items.add(data);
+        }
+        return items;
+    }
+
+    /**
+     * 以指定消费者接管并处理空闲超时的待确认消息
+     * @param consumer
+     * 消费者名称
+     * @param handler
+     * 消息处理器
+     * @return 接管的消息数量
+     */
+    public int reclaim(@Nonnull final String consumer, @Nonnull final StreamHandler<T> handler){
+        final List<byte[]> items = RedisScriptRegistry.eval(redisTemplate, CLAIM_SCRIPT, ReturnType.MULTI, 2,
+                bytes(streamKey), bytes(streamKey + DEAD_SUFFIX), bytes(group), bytes(consumer),
+                bytes(String.valueOf(minIdle)), bytes(String.valueOf(batchSize)), bytes(String.valueOf(maxDeliveries)));
+        final int count = process(items, handler);
+        if(count > 0){
+            log.info("reclaim(streamKey: {}, consumer: {})-接管消息: {}", streamKey, consumer, count);
+        }
+        prune(consumerExpire);
+        return count;
+    }
+
+    /**
+     * 删除没有待确认消息且空闲超时的消费者
+     * @param idle
+     * 最小空闲时间(毫秒)
+     * @param names
+     * 限定的消费者(缺省时检查全部消费者)
+     * @return 删除的消费者数量
+     */
+    public long prune(final long idle, @Nonnull final String... names){
+        final byte[][] keysAndArgs = new byte[names.length + 3][];
+        keysAndArgs[0] = bytes(streamKey);
+        keysAndArgs[1] = bytes(group);
+        keysAndArgs[2] = bytes(String.valueOf(idle));
+        for(int i = 0; i < names.length; i++){
+            keysAndArgs[i + 3] = bytes(names[i]);
+        }
+        final Long count = RedisScriptRegistry.eval(redisTemplate, PRUNE_SCRIPT, ReturnType.INTEGER, 1, keysAndArgs);
+        if(count != null && count > 0){
+            log.info("prune(streamKey: {}, group: {})-删除空闲消费者: {}", streamKey, group, count);
+        }
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 启动消费线程
+     * @param threads
+     * 消费线程数(每个线程为消费组内的一个消费者)
+     * @param handler
+     * 消息处理器
+     */
+    public synchronized void start(final int threads, @Nonnull final StreamHandler<T> handler){
+        log.debug("start(streamKey: {}, group: {}, threads: {})...", streamKey, group, threads);
+        Assert.isTrue(threads > 0, "'threads'必须大于0!");
+        final RedisConnectionFactory connectionFactory = redisTemplate.getConnectionFactory();
+        Assert.state(block <= 0 || !(connectionFactory instanceof LettuceConnectionFactory)
+                || !((LettuceConnectionFactory) connectionFactory).getShareNativeConnection(), "阻塞读取(block)不能使用共享的本地连接!");
+        if(!running.compareAndSet(false, true)){
+            return;
+        }
+        createGroup();
+        for(int i = 0; i < threads; i++){
+            //稳定的消费者名称: 重启后沿用原消费者及其待确认消息
+            final String consumer = consumerPrefix + "-" + i;
+            consumers.add(consumer);
+            final Thread thread = new Thread(() -> consume(consumer, handler), "redis-stream-" + streamKey + "-" + i);
+            thread.setDaemon(true);
+            workers.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * 停止消费线程(等待正在处理的批次完成)
+     */
+    @Override
+    public synchronized void close(){
+        if(!running.compareAndSet(true, false)){
+            return;
+        }
+        for(Thread thread : workers){
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        workers.clear();
+        try {
+            prune(0, consumers.toArray(new String[0]));
+        }catch (Throwable ex){
+            log.warn("close(streamKey: "+ streamKey +")-删除消费者失败:" + ex.getMessage(), ex);
+        }
+        consumers.clear();
+    }
+
+    /**
+     * 消费循环
+     * @param consumer
+     * 消费者名称
+     * @param handler
+     * 消息处理器
+     */
+    private void consume(@Nonnull final String consumer, @Nonnull final StreamHandler<T> handler){
+        long reclaimAt = 0;
+        while (running.get()){
+            try {
+                int count = 0;
+                final long now = System.currentTimeMillis();
+                if(now >= reclaimAt){
+                    reclaimAt = now + reclaimInterval;
+                    count += reclaim(consumer, handler);
+                }
+                count += poll(consumer, handler);
+                if(count == 0 && block <= 0){
+                    TimeUnit.MILLISECONDS.sleep(pollInterval);
+                }
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }catch (Throwable ex){
+                log.error("consume(streamKey: "+ streamKey +", consumer: "+ consumer +")-exp:" + ex.getMessage(), ex);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(pollInterval);
+                }catch (InterruptedException e){
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 处理读取到的消息并批量确认处理成功的消息
+     * @param items
+     * {消息ID, 消息数据, ...}
+     * @param handler
+     * 消息处理器
+     * @return 消息数量
+     */
+    private int process(final List<byte[]> items, @Nonnull final StreamHandler<T> handler){
+        if(items == null || items.isEmpty()){
+            return 0;
+        }
+        final int totals = items.size() / 2;
+        final List<byte[]> acks = new ArrayList<>(totals + 2);
+        acks.add(bytes(streamKey));
+        acks.add(bytes(group));
+        for(int i = 0; i + 1 < items.size(); i += 2){
+            final String id = new String(items.get(i), Constants.CHARSET);
+            try {
+                final T data = RedisUtils.parseObject(new String(items.get(i + 1), Constants.CHARSET), clazz);
+                if(data != null){
+                    handler.hander(id, data);
+                }
+                acks.add(items.get(i));
+            }catch (Throwable e){
+                //未确认的消息留在待确认列表中,空闲超时后重新投递
+                log.warn("process(streamKey: "+ streamKey +", id: "+ id +")-exp:" + e.getMessage(), e);
+            }
+        }
+        if(acks.size() > 2){
+            RedisScriptRegistry.eval(redisTemplate, ACK_SCRIPT, ReturnType.INTEGER, 1, acks.toArray(new byte[0][]));
+        }
+        return totals;
+    }
+
+    /**
+     * 获取主机名(获取失败时使用进程名)
+     * @return 主机名
+     */
+    private static String hostName(){
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        }catch (Throwable ex){
+            log.warn("hostName-exp:" + ex.getMessage());
+            return ManagementFactory.getRuntimeMXBean().getName();
+        }
+    }
+
+    private static byte[] bytes(@Nonnull final String value){
+        return value.getBytes(Constants.CHARSET);
+    }
+
+    /**
+     * 直接发送的 Streams 命令
+     */
+    private enum StreamCommand implements ProtocolKeyword {
+        XREADGROUP;
+
+        private final byte[] bytes = name().getBytes(StandardCharsets.US_ASCII);
+
+        @Override
+        public byte[] getBytes(){
+            return bytes;
+        }
+    }
+
+    /**
+     * 消息处理器
+     * @param <T>
+     *     消息数据类型
+     */
+    public interface StreamHandler<T extends Serializable> {
+
+        /**
+         * 消息处理(正常返回即确认消息,抛出异常时消息留待重新投递)
+         * @param id
+         * 消息ID
+         * @param data
+         * 消息数据
+         * @throws Exception
+         * 处理异常
+         */
+        void hander(@NonNull final String id, @NonNull final T data) throws Exception;
+    }
+}
@@ -2,20 +2,48 @@ package org.young.common.util;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 /**
  * 缓存工具类
+ * <p>
+ *     带名称创建的缓存记录命中率等统计,可通过 {@link #snapshot()} 获取;
+ *     {@link #createRefreshCache} 创建的缓存到期前由有界线程池异步刷新,刷新期间继续返回旧值;
+ *     加载结果为null的缓存键可记录到短期的缺失缓存中,避免反复穿透到数据源。
+ * </p>
  *
  * @author yangyong
  * @version 1.0
  **/
 @Slf4j
 public class CacheUtils {
+    /**
+     * 缓存名称-缓存
+     */
+    private static final ConcurrentMap<String, Cache<?, ?>> CACHES = new ConcurrentHashMap<>();
+    /**
+     * 异步刷新线程池(队列已满时放弃本次刷新,继续使用旧值)
+     */
+    private static final ExecutorService REFRESH_POOLS = new ThreadPoolExecutor(2, 4, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1000), new ThreadFactoryBuilder().setNameFormat("pools-cache-refresh-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
 
     /**
      * 创建缓存器
@@ -51,6 +79,141 @@ public class CacheUtils {
                 .build();
     }
 
+    /**
+     * 创建缓存器(记录统计)
+     * @param name
+     * 缓存名称(同名缓存后创建的覆盖先创建的统计)
+     * @param maxSize
+     * 最大缓存量
+     * @param duration
+     * 缓存期
+     * @param timeUnit
+     * 时间单位
+     * @param <K>
+     *     缓存键
+     * @param <V>
+     *     缓存值
+     * @return 缓存器
+     */
+    public static <K, V> Cache<K, V> createCache(@Nonnull final String name, final int maxSize, final int duration, final TimeUnit timeUnit){
+        log.debug("createCache(name: {}, maxSize: {}, duration: {}, timeUnit: {})...", name, maxSize, duration, timeUnit);
+        final Cache<K, V> cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize > 0 ? maxSize : 100)
+                .expireAfterWrite(duration < 0 ? 2 : duration, timeUnit == null ? TimeUnit.HOURS : timeUnit)
+                .recordStats()
+                .build();
+        CACHES.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * 创建异步刷新的缓存器(记录统计)
+     * <p>
+     *     写入超过刷新时间后,下一次读取触发异步刷新并立即返回旧值;超过过期时间未刷新成功的则同步加载。
+     *     加载结果为null时缓存为 {@link Optional#empty()},同样按刷新时间异步刷新。
+     * </p>
+     * @param name
+     * 缓存名称
+     * @param maxSize
+     * 最大缓存量
+     * @param refresh
+     * 刷新时间
+     * @param expire
+     * 过期时间(应大于刷新时间)
+     * @param timeUnit
+     * 时间单位
+     * @param loader
+     * 缓存加载器(返回null表示不存在)
+     * @param <K>
+     *     缓存键
+     * @param <V>
+     *     缓存值
+     * @return 缓存器
+     */
+    public static <K, V> LoadingCache<K, Optional<V>> createRefreshCache(@Nonnull final String name, final int maxSize, final int refresh, final int expire,
+                                                                        @Nonnull final TimeUnit timeUnit, @Nonnull final Function<? super K, ? extends V> loader){
+        log.debug("createRefreshCache(name: {}, maxSize: {}, refresh: {}, expire: {}, timeUnit: {})...", name, maxSize, refresh, expire, timeUnit);
+        final LoadingCache<K, Optional<V>> cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize > 0 ? maxSize : 100)
+                .refreshAfterWrite(refresh, timeUnit)
+                .expireAfterWrite(Math.max(expire, refresh), timeUnit)
+                .recordStats()
+                .build(CacheLoader.asyncReloading(new CacheLoader<K, Optional<V>>() {
+                    @Override
+                    public Optional<V> load(@Nonnull final K key) {
+                        return Optional.ofNullable(loader.apply(key));
+                    }
+                }, REFRESH_POOLS));
+        CACHES.put(name, cache);
+        return cache;
+    }
+
+    /**
+     * 获取异步刷新缓存的缓存值
+     * @param cache
+     * 缓存器
+     * @param key
+     * 缓存键
+     * @param <K>
+     *     缓存键
+     * @param <V>
+     *     缓存值
+     * @return 缓存值(不存在或加载失败时返回null)
+     */
+    public static <K, V> V getCacheValue(@Nonnull final LoadingCache<K, Optional<V>> cache, @Nonnull final K key){
+        try {
+            return cache.getUnchecked(key).orElse(null);
+        }catch (Throwable e){
+            log.warn("getCacheValue(key: {})-exp: {}", key, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 获取缓存值(加载结果为null时记录到缺失缓存,缺失缓存有效期内不再加载)
+     * <p>
+     *     只有加载器确实返回null时才记录缺失;加载器抛出异常(如数据库超时)时返回null但不记录缺失,下次访问重新加载。
+     * </p>
+     * @param cache
+     * 缓存器
+     * @param missing
+     * 缺失缓存(有效期应较短)
+     * @param key
+     * 缓存键
+     * @param loader
+     * 缓存加载器
+     * @param <K>
+     *     缓存键
+     * @param <V>
+     *     缓存值
+     * @return 缓存值
+     */
+    public static <K, V> V getCacheValue(@Nonnull final Cache<K, V> cache, @Nonnull final Cache<K, Boolean> missing, @Nonnull final K key, @Nonnull Callable<? extends V> loader){
+        if(missing.getIfPresent(key) != null){
+            return null;
+        }
+        try{
+            return cache.get(key, loader);
+        }catch (CacheLoader.InvalidCacheLoadException e){
+            //加载结果为null,记录缺失
+            missing.put(key, Boolean.TRUE);
+        }catch (Throwable e){
+            //加载失败,不记录缺失
+            log.warn("getCacheValue(key: {})-exp: {}", key, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 获取全部带名称缓存的统计
+     * @return 缓存名称-统计
+     */
+    public static Map<String, CacheStats> snapshot(){
+        final Map<String, CacheStats> stats = new TreeMap<>();
+        CACHES.forEach((name, cache) -> stats.put(name, cache.stats()));
+        return stats;
+    }
+
     /**
      * 获取缓存值
      * @param cache
@@ -67,11 +230,10 @@ public class CacheUtils {
      */
     public static <K, V> V getCacheValue(@Nonnull final Cache<K, V> cache, @Nonnull final K key, @Nonnull Callable<? extends V> loader){
         try{
-            final V data = cache.get(key, loader);
-            if(data == null){
-                cache.invalidate(key);
-            }
-            return data;
+            return cache.get(key, loader);
+        }catch (CacheLoader.InvalidCacheLoadException e){
+            //加载结果为null
+            return null;
         }catch (Throwable e){
             log.warn("getCacheValue(key: {})-exp: {}", key, e.getMessage());
         }
@@ -0,0 +1,147 @@
+package org.young.common.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.util.Assert;
+import org.young.common.protocol.Constants;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Redis lua脚本注册表
+ * <p>
+ *     脚本注册时计算一次SHA1并缓存脚本及SHA1的字节形式,执行时使用 EVALSHA 只发送SHA1;
+ *     服务端未缓存该脚本(NOSCRIPT)时改用 EVAL 执行,服务端随之缓存脚本,后续调用恢复使用 EVALSHA。
+ * </p>
+ * <p>
+ *     所有基于lua脚本的Redis操作均应通过本注册表执行。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+@Slf4j
+public final class RedisScriptRegistry {
+    /**
+     * 脚本源码-脚本
+     */
+    private static final ConcurrentMap<String, Script> SCRIPTS = new ConcurrentHashMap<>();
+
+    private RedisScriptRegistry(){
+
+    }
+
+    /**
+     * 注册脚本
+     * @param source
+     * 脚本源码
+     * @return 脚本
+     */
+    public static Script register(@Nonnull final String source){
+        Assert.hasText(source, "'source'不能为空!");
+        return SCRIPTS.computeIfAbsent(source, Script::new);
+    }
+
+    /**
+     * 执行脚本
+     * @param redisTemplate
+     * Redis操作模板
+     * @param script
+     * 脚本
+     * @param returnType
+     * 返回类型
+     * @param numKeys
+     * 键数量
+     * @param keysAndArgs
+     * 键和参数
+     * @param <T>
+     *     返回类型
+     * @return 执行结果
+     */
+    public static <T> T eval(@Nonnull final RedisTemplate<?, ?> redisTemplate, @Nonnull final Script script, @Nonnull final ReturnType returnType, final int numKeys, @Nonnull final byte[]... keysAndArgs){
+        return redisTemplate.execute((RedisCallback<T>) connection -> eval(connection, script, returnType, numKeys, keysAndArgs));
+    }
+
+    /**
+     * 执行脚本
+     * @param connection
+     * Redis连接
+     * @param script
+     * 脚本
+     * @param returnType
+     * 返回类型
+     * @param numKeys
+     * 键数量
+     * @param keysAndArgs
+     * 键和参数
+     * @param <T>
+     *     返回类型
+     * @return 执行结果
+     */
+    public static <T> T eval(@Nonnull final RedisConnection connection, @Nonnull final Script script, @Nonnull final ReturnType returnType, final int numKeys, @Nonnull final byte[]... keysAndArgs){
+        try {
+            return connection.evalSha(script.sha1Bytes, returnType, numKeys, keysAndArgs);
+        }catch (RuntimeException ex){
+            if(!isNoScript(ex)){
+                throw ex;
+            }
+            log.info("eval-服务端未缓存脚本,使用EVAL重新加载: {}", script.sha1);
+            return connection.eval(script.sourceBytes, returnType, numKeys, keysAndArgs);
+        }
+    }
+
+    /**
+     * 异常是否为服务端未缓存脚本(NOSCRIPT)
+     * @param ex
+     * 异常
+     * @return 是否NOSCRIPT
+     */
+    private static boolean isNoScript(final Throwable ex){
+        Throwable current = ex;
+        while (current != null){
+            final String msg = current.getMessage();
+            if(msg != null && msg.contains("NOSCRIPT")){
+                return true;
+            }
+            current = current.getCause() == current ? null : current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * lua脚本
+     */
+    public static final class Script {
+        /**
+         * 脚本源码
+         */
+        @Getter
+        private final String source;
+        /**
+         * 脚本SHA1
+         */
+        @Getter
+        private final String sha1;
+        /**
+         * 脚本源码字节
+         */
+        private final byte[] sourceBytes;
+        /**
+         * 脚本SHA1字节
+         */
+        private final byte[] sha1Bytes;
+
+        private Script(@Nonnull final String source){
+            this.source = source;
+            this.sourceBytes = source.getBytes(Constants.CHARSET);
+            this.sha1 = DigestUtils.sha1Hex(sourceBytes);
+            this.sha1Bytes = sha1.getBytes(Constants.CHARSET);
+        }
+    }
+}
@@ -2,15 +2,35 @@ package org.young.common.util;
 
 import com.alibaba.fastjson.JSON;
 import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.util.Assert;
+import org.young.common.cache.HotKeyDetector;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * redis工具类
@@ -22,6 +42,27 @@ import java.util.concurrent.TimeUnit;
 public class RedisUtils {
     private static final int REDIS_TIMEOUT = 86400;
     private static final int REDIS_READ_TIMEOUT = 10;
+    /**
+     * 批量读写时每批的最大键数量
+     */
+    private static final int REDIS_BATCH_SIZE = 500;
+    /**
+     * null标记(数据不存在)
+     */
+    public static final String NULL_JSON = "null";
+
+    /**
+     * 热点键探测器
+     */
+    private static final HotKeyDetector HOT_KEYS = HotKeyDetector.getDefault();
+
+    /**
+     * 获取当前热点键列表(通过本工具类读取的键)
+     * @return 热点键列表(按估算访问次数降序)
+     */
+    public static List<HotKeyDetector.HotKey> getHotKeys(){
+        return HOT_KEYS.getHotKeys();
+    }
 
     /**
      * 清空Redis缓存键
@@ -36,6 +77,7 @@ public class RedisUtils {
         Assert.hasText(key, "'key'不能为空!");
         try {
             //清空缓存数据
+            HOT_KEYS.invalidate(key);
             final Boolean ret = redisTemplate.delete(key);
             log.debug("clearRedisKey-delete(key: {})-ret: {}", key, ret);
         }catch (Throwable ex){
@@ -64,6 +106,7 @@ public class RedisUtils {
             if(!Strings.isNullOrEmpty(json)){
                 //缓存数据
                 redisTemplate.opsForValue().set(key, json, REDIS_TIMEOUT, TimeUnit.SECONDS);
+                HOT_KEYS.invalidate(key);
             }
             log.info("writeRedisCache(key: {})=> {}", key, json);
         }catch (Throwable ex){
@@ -88,8 +131,16 @@ public class RedisUtils {
         //检查参数
         Assert.hasText(key, "'key'不能为空!");
         try{
-            //读取缓存数据
-            final Object obj = redisTemplate.opsForValue().get(key);
+            //热点键优先读取进程内缓存
+            final boolean hot = HOT_KEYS.record(key);
+            Object obj = hot ? HOT_KEYS.getLocal(key) : null;
+            if(obj == null){
+                //读取缓存数据
+                obj = redisTemplate.opsForValue().get(key);
+                if(hot){
+                    HOT_KEYS.promote(key, obj);
+                }
+            }
             if(obj != null){
                 return parseObject(obj, clazz);
             }
@@ -99,6 +150,260 @@ public class RedisUtils {
         return null;
     }
 
+    /**
+     * 批量写入Redis缓存
+     * <p>
+     *     按 {@link #REDIS_BATCH_SIZE} 分批,每批在一次管道中写入(SET 并设置有效期),避免单个超大批次阻塞Redis。
+     * </p>
+     * @param redisTemplate
+     * Redis操作模板
+     * @param data
+     * 缓存键-缓存值
+     * @param <T>
+     *     缓存类型
+     */
+    public static <T extends Serializable> void writeRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Map<String, T> data){
+        writeRedisCacheBatch(redisTemplate, data, REDIS_TIMEOUT);
+    }
+
+    /**
+     * 批量写入Redis缓存(指定有效期)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param data
+     * 缓存键-缓存值
+     * @param expire
+     * 有效期(秒)
+     * @param <T>
+     *     缓存类型
+     */
+    public static <T extends Serializable> void writeRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Map<String, T> data, final long expire){
+        log.debug("writeRedisCacheBatch(redisTemplate: {}, data: {}, expire: {})...", redisTemplate, data.size(), expire);
+        if(data.isEmpty()){
+            return;
+        }
+        try{
+            //缓存数据json化处理
+            final List<Map.Entry<String, String>> items = new ArrayList<>(data.size());
+            data.forEach((key, val) -> {
+                if(!Strings.isNullOrEmpty(key) && val != null){
+                    final String json = toJson(val);
+                    if(!Strings.isNullOrEmpty(json)){
+                        items.add(new AbstractMap.SimpleImmutableEntry<>(key, json));
+                    }
+                }
+            });
+            writePipelined(redisTemplate, items, expire);
+        }catch (Throwable ex){
+            log.error("writeRedisCacheBatch(keys: "+ data.keySet() +")-exp:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 批量写入null标记(数据不存在的缓存键,使用较短的有效期防止缓存穿透)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param keys
+     * 缓存键集合
+     * @param expire
+     * 有效期(秒)
+     */
+    public static void writeRedisCacheNulls(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Collection<String> keys, final long expire){
+        log.debug("writeRedisCacheNulls(redisTemplate: {}, keys: {}, expire: {})...", redisTemplate, keys.size(), expire);
+        if(keys.isEmpty()){
+            return;
+        }
+        try{
+            final List<Map.Entry<String, String>> items = new ArrayList<>(keys.size());
+            keys.forEach(key -> {
+                if(!Strings.isNullOrEmpty(key)){
+                    items.add(new AbstractMap.SimpleImmutableEntry<>(key, NULL_JSON));
+                }
+            });
+            writePipelined(redisTemplate, items, expire);
+        }catch (Throwable ex){
+            log.error("writeRedisCacheNulls(keys: "+ keys +")-exp:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 批量缓存的缓存键(与 {@link org.young.common.cache.BatchCacheable} 的缓存键一致)
+     * @param prefix
+     * 缓存键前缀
+     * @param delimiter
+     * 缓存键分隔符
+     * @param id
+     * 主键
+     * @return 缓存键(前缀 + 分隔符 + 主键)
+     */
+    public static String batchCacheKey(@Nonnull final String prefix, @Nonnull final String delimiter, @Nonnull final Object id){
+        return prefix + delimiter + id;
+    }
+
+    /**
+     * 按主键批量写入批量缓存(覆盖数据及null标记,数据变更后回填缓存)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param prefix
+     * 缓存键前缀(同 {@link org.young.common.cache.BatchCacheable#prefix()})
+     * @param delimiter
+     * 缓存键分隔符(同 {@link org.young.common.cache.BatchCacheable#delimiter()})
+     * @param data
+     * 主键-缓存值
+     * @param expire
+     * 有效期(秒)
+     * @param <T>
+     *     缓存类型
+     */
+    public static <T extends Serializable> void writeRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String prefix, @Nonnull final String delimiter,
+                                                                     @Nonnull final Map<?, T> data, final long expire){
+        final Map<String, T> items = new LinkedHashMap<>(data.size());
+        data.forEach((id, val) -> {
+            if(id != null){
+                items.put(batchCacheKey(prefix, delimiter, id), val);
+            }
+        });
+        writeRedisCacheBatch(redisTemplate, items, expire);
+    }
+
+    /**
+     * 按主键批量清除批量缓存(同时清除数据及null标记,数据变更或新增后调用)
+     * <p>
+     *     按 {@link #REDIS_BATCH_SIZE} 分批删除。
+     * </p>
+     * @param redisTemplate
+     * Redis操作模板
+     * @param prefix
+     * 缓存键前缀(同 {@link org.young.common.cache.BatchCacheable#prefix()})
+     * @param delimiter
+     * 缓存键分隔符(同 {@link org.young.common.cache.BatchCacheable#delimiter()})
+     * @param ids
+     * 主键集合
+     */
+    public static void clearRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String prefix, @Nonnull final String delimiter, @Nonnull final Collection<?> ids){
+        log.debug("clearRedisCacheBatch(redisTemplate: {}, prefix: {}, ids: {})...", redisTemplate, prefix, ids.size());
+        final List<String> keys = new ArrayList<>(ids.size());
+        ids.forEach(id -> {
+            if(id != null){
+                keys.add(batchCacheKey(prefix, delimiter, id));
+            }
+        });
+        try{
+            for(List<String> batch : Lists.partition(keys, REDIS_BATCH_SIZE)){
+                final Long ret = redisTemplate.delete(new ArrayList<>(batch));
+                log.debug("clearRedisCacheBatch-delete(keys: {})-ret: {}", batch.size(), ret);
+            }
+            keys.forEach(HOT_KEYS::invalidate);
+        }catch (Throwable ex){
+            log.error("clearRedisCacheBatch(keys: "+ keys +")-exp:" + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * 分批在管道中写入缓存(SET 并设置有效期)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param items
+     * 缓存键-缓存json
+     * @param expire
+     * 有效期(秒)
+     */
+    private static void writePipelined(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final List<Map.Entry<String, String>> items, final long expire){
+        for(List<Map.Entry<String, String>> batch : Lists.partition(items, REDIS_BATCH_SIZE)){
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(@Nonnull final RedisOperations<K, V> operations) {
+                    final ValueOperations<Object, Object> ops = (ValueOperations<Object, Object>) operations.opsForValue();
+                    batch.forEach(item -> ops.set(item.getKey(), item.getValue(), expire, TimeUnit.SECONDS));
+                    return null;
+                }
+            });
+        }
+        items.forEach(item -> HOT_KEYS.invalidate(item.getKey()));
+        log.info("writePipelined-totals: {}", items.size());
+    }
+
+    /**
+     * 批量读取Redis缓存数据
+     * <p>
+     *     按 {@link #REDIS_BATCH_SIZE} 分批使用 MGET 读取。
+     * </p>
+     * @param redisTemplate
+     * Redis操作模板
+     * @param keys
+     * 缓存键集合
+     * @param clazz
+     * 缓存数据类型
+     * @param <T>
+     *     缓存数据类型
+     * @return 缓存键-缓存数据(不包含不存在的缓存键)
+     */
+    public static <T extends Serializable> Map<String, T> readRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Collection<String> keys, @Nonnull final Class<T> clazz){
+        return readRedisCacheBatch(redisTemplate, keys, clazz, null);
+    }
+
+    /**
+     * 批量读取Redis缓存数据(区分null标记)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param keys
+     * 缓存键集合
+     * @param clazz
+     * 缓存数据类型
+     * @param nulls
+     * 命中null标记的缓存键(为null时不收集)
+     * @param <T>
+     *     缓存数据类型
+     * @return 缓存键-缓存数据(不包含不存在及null标记的缓存键)
+     */
+    public static <T extends Serializable> Map<String, T> readRedisCacheBatch(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final Collection<String> keys, @Nonnull final Class<T> clazz,
+                                                                              @Nullable final Collection<String> nulls){
+        log.debug("readRedisCacheBatch(redisTemplate: {}, keys: {}, clazz: {})...", redisTemplate, keys.size(), clazz);
+        final Map<String, T> ret = new LinkedHashMap<>();
+        if(keys.isEmpty()){
+            return ret;
+        }
+        try{
+            //热点键优先读取进程内缓存
+            final Map<String, Object> raws = new LinkedHashMap<>();
+            final List<Object> items = new ArrayList<>();
+            for(String key : new LinkedHashSet<>(keys)){
+                final Object obj = HOT_KEYS.record(key) ? HOT_KEYS.getLocal(key) : null;
+                raws.put(key, obj);
+                if(obj == null){
+                    items.add(key);
+                }
+            }
+            for(List<Object> batch : Lists.partition(items, REDIS_BATCH_SIZE)){
+                final List<Object> values = redisTemplate.opsForValue().multiGet(batch);
+                if(values == null){
+                    continue;
+                }
+                for(int i = 0; i < batch.size() && i < values.size(); i++){
+                    final String key = (String) batch.get(i);
+                    raws.put(key, values.get(i));
+                    HOT_KEYS.promote(key, values.get(i));
+                }
+            }
+            raws.forEach((key, obj) -> {
+                if(obj != null && NULL_JSON.equals(obj)){
+                    if(nulls != null){
+                        nulls.add(key);
+                    }
+                }else if(obj != null){
+                    final T data = parseObject(obj, clazz);
+                    if(data != null){
+                        ret.put(key, data);
+                    }
+                }
+            });
+        }catch (Throwable ex){
+            log.error("readRedisCacheBatch(keys: "+ keys +", clazz: "+ clazz +")-exp:" + ex.getMessage(), ex);
+        }
+        return ret;
+    }
+
     /**
      * 写入缓存列表数据
      * @param redisTemplate
@@ -153,6 +458,50 @@ public class RedisUtils {
         return null;
     }
 
+    /**
+     * 按窗口分批读取缓存列表数据(流式)
+     * <p>
+     *     每次使用 LRANGE 读取 {@link #REDIS_BATCH_SIZE} 个元素,元素在遍历时才解析,
+     *     内存中最多保留一个窗口的数据,适合处理超大列表;遍历期间列表被修改时可能重复或遗漏元素。
+     * </p>
+     * @param redisTemplate
+     * Redis操作模板
+     * @param key
+     * 缓存键
+     * @param clazz
+     * 缓存数据class
+     * @param <T>
+     *     缓存数据类型
+     * @return 缓存数据流(跳过无法解析的元素)
+     */
+    public static <T extends Serializable> Stream<T> readRedisCacheListStream(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, @Nonnull final Class<T> clazz){
+        log.debug("readRedisCacheListStream(redisTemplate: {}, key: {}, clazz: {})...", redisTemplate, key, clazz);
+        return readRedisCacheListStream(redisTemplate, key, clazz, REDIS_BATCH_SIZE);
+    }
+
+    /**
+     * 按窗口分批读取缓存列表数据(流式)
+     * @param redisTemplate
+     * Redis操作模板
+     * @param key
+     * 缓存键
+     * @param clazz
+     * 缓存数据class
+     * @param windowSize
+     * 每次读取的元素数量
+     * @param <T>
+     *     缓存数据类型
+     * @return 缓存数据流(跳过无法解析的元素)
+     */
+    public static <T extends Serializable> Stream<T> readRedisCacheListStream(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, @Nonnull final Class<T> clazz, final int windowSize){
+        Assert.hasText(key, "'key'不能为空!");
+        Assert.isTrue(windowSize > 0, "'windowSize'必须大于0!");
+        final Iterator<Object> iterator = new ListWindowIterator(redisTemplate, key, windowSize);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(item -> parseObject(item, clazz))
+                .filter(Objects::nonNull);
+    }
+
     /**
      * 逐个读取缓存数据处理
      * @param redisTemplate
@@ -219,7 +568,7 @@ public class RedisUtils {
      *     目标数据泛型
      * @return 目标数据
      */
-    private static <T extends Serializable> T parseObject(@NonNull final Object obj, @NonNull final Class<T> clazz){
+    public static <T extends Serializable> T parseObject(@NonNull final Object obj, @NonNull final Class<T> clazz){
         log.debug("parseObject(obj: {}, clazz: {})...", obj, clazz);
         if(obj instanceof String){
             final String json = (String) obj;
@@ -234,6 +583,56 @@ public class RedisUtils {
         return null;
     }
 
+    /**
+     * 按窗口分批读取列表元素的迭代器
+     */
+    private static class ListWindowIterator implements Iterator<Object> {
+        private final RedisTemplate<Object, Object> redisTemplate;
+        private final String key;
+        private final int windowSize;
+        /**
+         * 下一个窗口的起始索引
+         */
+        private long start = 0;
+        /**
+         * 当前窗口
+         */
+        private Iterator<Object> window = Collections.emptyIterator();
+        /**
+         * 是否已读取到列表末尾
+         */
+        private boolean finished = false;
+
+        ListWindowIterator(@Nonnull final RedisTemplate<Object, Object> redisTemplate, @Nonnull final String key, final int windowSize){
+            this.redisTemplate = redisTemplate;
+            this.key = key;
+            this.windowSize = windowSize;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!window.hasNext() && !finished){
+                final List<Object> items = redisTemplate.opsForList().range(key, start, start + windowSize - 1);
+                if(items == null || items.size() < windowSize){
+                    finished = true;
+                }
+                if(items != null){
+                    start += items.size();
+                    window = items.iterator();
+                }
+            }
+            return window.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            if(!hasNext()){
+                throw new NoSuchElementException();
+            }
+            return window.next();
+        }
+    }
+
     /**
      * 读取缓存数据处理
      * @param <T>
@@ -0,0 +1,73 @@
+package org.young.common;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.config.FastJsonRedisTemplate;
+
+import java.util.Set;
+
+/**
+ * Redis集成测试基类
+ * <p>
+ *     连接 -Dredis.host / -Dredis.port 指定的Redis(默认 localhost:6379),Redis不可用时跳过测试。
+ *     测试键均以 {@link #PREFIX} 开头,测试前后清理。
+ * </p>
+ *
+ * @author jeasonyoung
+ */
+public abstract class RedisTestSupport {
+    /**
+     * 测试键前缀
+     */
+    protected static final String PREFIX = "young_test:";
+
+    private static LettuceConnectionFactory connectionFactory;
+    protected static RedisTemplate<Object, Object> redisTemplate;
+
+    @BeforeClass
+    public static void connect(){
+        final LettuceConnectionFactory factory = new LettuceConnectionFactory(System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379));
+        factory.afterPropertiesSet();
+        try {
+            final RedisConnection connection = factory.getConnection();
+            try {
+                connection.ping();
+            }finally {
+                connection.close();
+            }
+        }catch (Throwable ex){
+            factory.destroy();
+            Assume.assumeNoException("Redis不可用,跳过测试", ex);
+        }
+        connectionFactory = factory;
+        redisTemplate = new FastJsonRedisTemplate();
+        redisTemplate.setConnectionFactory(factory);
+        redisTemplate.afterPropertiesSet();
+        clean();
+    }
+
+    @AfterClass
+    public static void disconnect(){
+        if(connectionFactory != null){
+            clean();
+            connectionFactory.destroy();
+            connectionFactory = null;
+            redisTemplate = null;
+        }
+    }
+
+    /**
+     * 删除全部测试键
+     */
+    protected static void clean(){
+        final Set<Object> keys = redisTemplate.keys(PREFIX + "*");
+        if(keys != null && !keys.isEmpty()){
+            redisTemplate.delete(keys);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package org.young.common.cache;
+
+import org.junit.Test;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 缓存键生成计划-测试
+ *
+ * @author jeasonyoung
+ */
+public class CacheKeyPlanTest {
+
+    @Test
+    public void testPrefix() throws Exception {
+        assertEquals("users-accounts", plan("cached").getKey());
+        assertEquals("users", plan("evict").getKey());
+        assertEquals("target.plain", plan("plain").getKey());
+    }
+
+    @Test
+    public void testStableHash() throws Exception {
+        final CacheKeyPlan plan = plan("cached");
+        final String key = plan.getKey("u1", 1, Arrays.asList("a", "b"));
+        assertTrue(key.startsWith("users-accounts:"));
+        //murmur3_128 十六进制
+        assertEquals("users-accounts:".length() + 32, key.length());
+        assertEquals(key, plan.getKey("u1", 1, Arrays.asList("a", "b")));
+        assertEquals(key, CacheKeyPlan.compile(Target.class, method("cached")).getKey("u1", 1, Arrays.asList("a", "b")));
+    }
+
+    @Test
+    public void testDistinctArgs() throws Exception {
+        final CacheKeyPlan plan = plan("cached");
+        assertNotEquals(plan.getKey("u1", 1), plan.getKey("u1", 2));
+        assertNotEquals(plan.getKey("u1", null), plan.getKey(null, "u1"));
+        assertNotEquals(plan.getKey("1"), plan.getKey(1));
+    }
+
+    @Test
+    public void testBeanArgs() throws Exception {
+        final CacheKeyPlan plan = plan("cached");
+        assertNotEquals(plan.getKey(new Bean("a")), plan.getKey(new Bean("b")));
+        assertEquals(plan.getKey(new Bean("a")), plan.getKey(new Bean("a")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpaqueParameter() throws Exception {
+        //没有getter的参数类型序列化为"{}",解析方法时失败
+        plan("opaque");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpaqueArgument() throws Exception {
+        plan("cached").getKey("u1", new Opaque("a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpaqueArray() throws Exception {
+        plan("cached").getKey((Object) new Opaque[]{ new Opaque("a") });
+    }
+
+    private static CacheKeyPlan plan(final String name) throws NoSuchMethodException {
+        return CacheKeyPlan.compile(Target.class, method(name));
+    }
+
+    private static Method method(final String name) throws NoSuchMethodException {
+        for(Method method : Target.class.getDeclaredMethods()){
+            if(method.getName().equals(name)){
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    @SuppressWarnings("unused")
+    private static class Target {
+        @Cacheable(cacheNames = { "users", "accounts" })
+        Object cached(final Object... args){
+            return null;
+        }
+
+        @CacheEvict(cacheNames = "users")
+        void evict(final String id){ }
+
+        Object plain(final String id){
+            return null;
+        }
+
+        @Cacheable(cacheNames = "opaque")
+        Object opaque(final Opaque opaque){
+            return null;
+        }
+    }
+
+    public static class Bean {
+        private final String name;
+
+        Bean(final String name){
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class Opaque {
+        private final String name;
+
+        Opaque(final String name){
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+}
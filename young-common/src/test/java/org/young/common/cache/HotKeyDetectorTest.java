@@ -0,0 +1,75 @@
+package org.young.common.cache;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 热点键探测-测试
+ *
+ * @author jeasonyoung
+ */
+public class HotKeyDetectorTest {
+
+    @Test
+    public void testThreshold(){
+        final HotKeyDetector detector = new HotKeyDetector(4, 1024, 1, 10, 60, 10, 60);
+        for(int i = 1; i < 10; i++){
+            assertFalse(detector.record("hot"));
+        }
+        assertTrue(detector.record("hot"));
+        assertFalse(detector.record("cold"));
+        final List<HotKeyDetector.HotKey> keys = detector.getHotKeys();
+        assertEquals(1, keys.size());
+        assertEquals("hot", keys.get(0).getKey());
+        assertEquals(10, keys.get(0).getCount());
+    }
+
+    @Test
+    public void testNeverUnderestimates(){
+        //计数矩阵很窄时哈希冲突只会高估,估算值至少为实际访问次数
+        final HotKeyDetector detector = new HotKeyDetector(2, 16, 1, 50, 60, 1000, 60);
+        for(int i = 0; i < 500; i++){
+            detector.record("noise-" + i);
+        }
+        for(int i = 0; i < 49; i++){
+            detector.record("key");
+        }
+        assertTrue(detector.record("key"));
+    }
+
+    @Test
+    public void testTopK(){
+        final HotKeyDetector detector = new HotKeyDetector(4, 4096, 1, 1, 60, 2, 60);
+        for(int i = 0; i < 5; i++){
+            detector.record("a");
+        }
+        for(int i = 0; i < 3; i++){
+            detector.record("b");
+        }
+        detector.record("c");
+        final List<HotKeyDetector.HotKey> keys = detector.getHotKeys();
+        assertEquals(2, keys.size());
+        assertEquals("a", keys.get(0).getKey());
+        assertEquals("b", keys.get(1).getKey());
+    }
+
+    @Test
+    public void testLocalCache(){
+        final HotKeyDetector detector = new HotKeyDetector(4, 1024, 1, 2, 60, 10, 60);
+        detector.promote("k", "v");
+        assertNull("非热点键不缓存", detector.getLocal("k"));
+        detector.record("k");
+        detector.record("k");
+        detector.promote("k", "v");
+        assertEquals("v", detector.getLocal("k"));
+        assertTrue(detector.getHotKeys().get(0).isCached());
+        detector.invalidate("k");
+        assertNull(detector.getLocal("k"));
+    }
+}
@@ -0,0 +1,153 @@
+package org.young.common.config;
+
+import com.alibaba.fastjson.support.spring.GenericFastJsonRedisSerializer;
+import com.google.common.base.Strings;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.young.common.cache.CacheEnvelope;
+import org.young.common.protocol.Constants;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis紧凑二进制序列化-测试
+ *
+ * @author jeasonyoung
+ */
+public class CompactRedisSerializerTest {
+    private final CompactRedisSerializer serializer = new CompactRedisSerializer();
+
+    @Test
+    public void testNull(){
+        assertEquals(0, serializer.serialize(null).length);
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+    }
+
+    @Test
+    public void testPrimitives(){
+        assertEquals("中文", roundTrip("中文"));
+        assertEquals(Long.MAX_VALUE, roundTrip(Long.MAX_VALUE));
+        assertEquals(-1, roundTrip(-1));
+        assertEquals(3.14, roundTrip(3.14));
+        assertEquals(Boolean.TRUE, roundTrip(true));
+        assertEquals(new BigDecimal("12.50"), roundTrip(new BigDecimal("12.50")));
+        assertArrayEquals(new byte[]{ 1, 2, 3 }, (byte[]) roundTrip(new byte[]{ 1, 2, 3 }));
+        //数值不写类名,只占头部 + 8字节
+        assertEquals(12, serializer.serialize(1L).length);
+    }
+
+    @Test
+    public void testObject(){
+        final Item item = new Item("a", 1);
+        assertEquals(item, roundTrip(item));
+        //声明类型为Object的字段带有 @type
+        final CacheEnvelope envelope = (CacheEnvelope) roundTrip(new CacheEnvelope(item, 5, 10));
+        assertEquals(item, envelope.getValue());
+        assertEquals(5, envelope.getDelta());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCollection(){
+        final List<Item> items = new ArrayList<>(Arrays.asList(new Item("a", 1), new Item("b", 2)));
+        assertEquals(items, roundTrip(items));
+    }
+
+    @Test
+    public void testDeflate(){
+        final String text = Strings.repeat("young-zen ", 1000);
+        final byte[] bytes = serializer.serialize(text);
+        assertTrue(bytes.length < text.length() / 2);
+        assertEquals(text, serializer.deserialize(bytes));
+        //不压缩
+        assertEquals(text.length() + 4, new CompactRedisSerializer(0).serialize(text).length);
+    }
+
+    @Test
+    public void testLegacyJson(){
+        final byte[] legacy = new GenericFastJsonRedisSerializer().serialize(new Item("a", 1));
+        assertEquals(new Item("a", 1), serializer.deserialize(legacy));
+    }
+
+    @Test
+    public void testAccepts(){
+        assertTrue(serializer.isAccepted("org.young.common.cache.CacheEnvelope"));
+        assertTrue(serializer.isAccepted("java.math.BigDecimal"));
+        assertTrue(!serializer.isAccepted("java.lang.Runtime"));
+        assertTrue(!serializer.isAccepted("com.sun.rowset.JdbcRowSetImpl"));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testRejectClassName(){
+        //头部类名改为不在允许范围内的包(长度不变)
+        final byte[] bytes = new CompactRedisSerializer(0).serialize(new Item("a", 1));
+        final byte[] from = "org.young.".getBytes(Constants.CHARSET), to = "com.evil.x".getBytes(Constants.CHARSET);
+        for(int i = 0; i + from.length <= bytes.length; i++){
+            if(Arrays.equals(Arrays.copyOfRange(bytes, i, i + from.length), from)){
+                System.arraycopy(to, 0, bytes, i, to.length);
+                break;
+            }
+        }
+        serializer.deserialize(bytes);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void testRejectAutoType(){
+        serializer.deserialize("{\"@type\":\"com.sun.rowset.JdbcRowSetImpl\",\"dataSourceName\":\"ldap://127.0.0.1/x\"}".getBytes(Constants.CHARSET));
+    }
+
+    private Object roundTrip(final Object value){
+        return serializer.deserialize(serializer.serialize(value));
+    }
+
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+        private int count;
+
+        public Item(){
+
+        }
+
+        Item(final String name, final int count){
+            this.name = name;
+            this.count = count;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        public void setName(final String name){
+            this.name = name;
+        }
+
+        public int getCount(){
+            return count;
+        }
+
+        public void setCount(final int count){
+            this.count = count;
+        }
+
+        @Override
+        public boolean equals(final Object o){
+            return o instanceof Item && ((Item) o).count == count && name.equals(((Item) o).name);
+        }
+
+        @Override
+        public int hashCode(){
+            return name.hashCode() * 31 + count;
+        }
+    }
+}
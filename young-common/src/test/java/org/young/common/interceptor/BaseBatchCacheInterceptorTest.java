@@ -0,0 +1,108 @@
+package org.young.common.interceptor;
+
+import org.junit.Test;
+import org.young.common.cache.BatchCacheable;
+
+import java.io.Serializable;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 批量缓存计划-测试
+ *
+ * @author jeasonyoung
+ */
+public class BaseBatchCacheInterceptorTest {
+
+    @Test
+    public void testListParameter() throws Exception {
+        final BaseBatchCacheInterceptor.Plan plan = compile("byList");
+        assertEquals(1, plan.index);
+        assertEquals(Item.class, plan.valueClass);
+        assertEquals(1800, plan.expire);
+        assertEquals(60, plan.nullExpire);
+        assertEquals("item:7", plan.key(7L));
+        assertTrue(plan.newCollection() instanceof ArrayList);
+    }
+
+    @Test
+    public void testSetParameter() throws Exception {
+        final BaseBatchCacheInterceptor.Plan plan = compile("bySet");
+        assertEquals(0, plan.index);
+        assertEquals("item-7", plan.key(7L));
+        assertEquals(5, plan.expire);
+        assertEquals(0, plan.nullExpire);
+        assertTrue(plan.newCollection() instanceof LinkedHashSet);
+    }
+
+    @Test
+    public void testCollectionParameter() throws Exception {
+        assertEquals(0, compile("byCollection").index);
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        //返回值不能接收 LinkedHashMap
+        assertEquals(-1, compile("treeMap").index);
+        //数据不可序列化
+        assertEquals(-1, compile("notSerializable").index);
+        //没有主键集合参数
+        assertEquals(-1, compile("noCollection").index);
+    }
+
+    private static BaseBatchCacheInterceptor.Plan compile(final String name) throws NoSuchMethodException {
+        for(Method method : Target.class.getDeclaredMethods()){
+            if(method.getName().equals(name)){
+                return BaseBatchCacheInterceptor.Plan.compile(method, method.getAnnotation(BatchCacheable.class));
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+    }
+
+    @SuppressWarnings("unused")
+    private static class Target {
+        @BatchCacheable(prefix = "item")
+        Map<Long, Item> byList(final String tenant, final List<Long> ids){
+            return null;
+        }
+
+        @BatchCacheable(prefix = "item", delimiter = "-", expire = 5, timeUnit = java.util.concurrent.TimeUnit.SECONDS, nullExpire = 0)
+        Map<Long, Item> bySet(final Set<Long> ids){
+            return null;
+        }
+
+        @BatchCacheable(prefix = "item")
+        LinkedHashMap<Long, Item> byCollection(final Collection<Long> ids){
+            return null;
+        }
+
+        @BatchCacheable(prefix = "item")
+        TreeMap<Long, Item> treeMap(final List<Long> ids){
+            return null;
+        }
+
+        @BatchCacheable(prefix = "item")
+        Map<Long, Object> notSerializable(final List<Long> ids){
+            return null;
+        }
+
+        @BatchCacheable(prefix = "item")
+        Map<Long, Item> noCollection(final Long id){
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 等待锁的退避策略-测试
+ *
+ * @author jeasonyoung
+ */
+public class LockBackoffTest {
+
+    @Test
+    public void testFixedJitter() {
+        final LockBackoff backoff = new FixedLockBackoff(50, 100);
+        final Set<Long> delays = new HashSet<>();
+        for(int i = 0; i < 100; i++){
+            final long delay = backoff.delay(1);
+            assertTrue(delay >= TimeUnit.MILLISECONDS.toNanos(50) && delay < TimeUnit.MILLISECONDS.toNanos(150));
+            delays.add(delay);
+        }
+        assertTrue("同时重试的等待者被打散", delays.size() > 1);
+    }
+
+    @Test
+    public void testExponentialCap() {
+        final LockBackoff backoff = new ExponentialLockBackoff(10, 80);
+        for(int attempt = 1; attempt <= 40; attempt++){
+            final long ceil = TimeUnit.MILLISECONDS.toNanos(Math.min(80, 10L << Math.min(attempt - 1, 30)));
+            for(int i = 0; i < 20; i++){
+                final long delay = backoff.delay(attempt);
+                assertTrue(delay >= 0 && delay <= ceil);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+import org.springframework.expression.EvaluationException;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 锁键生成计划-测试
+ *
+ * @author jeasonyoung
+ */
+public class LockKeyPlanTest {
+
+    @Test
+    public void testToRoot(){
+        assertEquals("#root.id", LockKeyPlan.toRoot("#user.id", "user"));
+        assertEquals("#root.id + #users", LockKeyPlan.toRoot("#user.id + #users", "user"));
+        assertEquals("#users.id", LockKeyPlan.toRoot("#users.id", "user"));
+    }
+
+    @Test
+    public void testSingleKey() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("single", String.class, String.class), "lock_", ":");
+        assertEquals("lock_u1", plan.getKey(new Object[]{ "u1", "ignored" }));
+        assertEquals(Collections.singletonList("lock_u1"), plan.getKeys(new Object[]{ "u1", "ignored" }));
+    }
+
+    @Test
+    public void testNoLockParam() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("none", String.class), "lock_none", ":");
+        assertEquals("lock_none", plan.getKey(new Object[]{ "u1" }));
+    }
+
+    @Test
+    public void testExpression() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("user", User.class), "lock_", ":");
+        assertEquals("lock_u1", plan.getKey(new Object[]{ new User("u1") }));
+    }
+
+    @Test
+    public void testCartesianKeys() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("batch", List.class, String[].class), "lock_", ":");
+        final List<String> keys = plan.getKeys(new Object[]{ Arrays.asList(1L, 2L), new String[]{ "a", "b" } });
+        assertEquals(Arrays.asList("lock_1:a", "lock_1:b", "lock_2:a", "lock_2:b"), keys);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyKeys() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("batch", List.class, String[].class), "lock_", ":");
+        plan.getKeys(new Object[]{ Collections.emptyList(), new String[]{ "a" } });
+    }
+
+    @Test
+    public void testStandardContext() throws Exception {
+        //静态方法调用及构造函数使用标准求值上下文
+        assertEquals("lock_2", LockKeyPlan.compile(method("statics", String.class), "lock_", ":").getKey(new Object[]{ "u1" }));
+        assertEquals("lock_1u", LockKeyPlan.compile(method("constructor", String.class), "lock_", ":").getKey(new Object[]{ "u1" }));
+    }
+
+    @Test(expected = EvaluationException.class)
+    public void testBeanReferenceRejected() throws Exception {
+        final LockKeyPlan plan = LockKeyPlan.compile(method("bean", String.class), "lock_", ":");
+        plan.getKey(new Object[]{ "u1" });
+    }
+
+    private static Method method(final String name, final Class<?>... types) throws NoSuchMethodException {
+        return Target.class.getDeclaredMethod(name, types);
+    }
+
+    public static class User {
+        private final String id;
+
+        User(final String id){
+            this.id = id;
+        }
+
+        public String getId(){
+            return id;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Target {
+        void single(@LockParam final String id, final String other){ }
+
+        void none(final String id){ }
+
+        void user(@LockParam(name = "#user.id") final User user){ }
+
+        void batch(@LockParam final List<Long> ids, @LockParam final String[] tags){ }
+
+        void statics(@LockParam(name = "T(java.lang.String).valueOf(#id.length())") final String id){ }
+
+        void constructor(@LockParam(name = "new java.lang.StringBuilder(#id).reverse()") final String id){ }
+
+        void bean(@LockParam(name = "@users.get(#id)") final String id){ }
+    }
+}
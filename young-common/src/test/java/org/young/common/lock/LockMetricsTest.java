@@ -0,0 +1,24 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 分布式锁统计-测试
+ *
+ * @author jeasonyoung
+ */
+public class LockMetricsTest {
+
+    @Test
+    public void testCoalescedNotFailure() {
+        final LockMetrics.Stats stats = LockMetrics.getStats("lock_metrics_coalesce");
+        stats.coalesced();
+        stats.acquired(true, 1000, 0);
+        final LockMetrics.Stats.Snapshot snapshot = stats.snapshot();
+        assertEquals(1, snapshot.getCoalesced());
+        assertEquals(1, snapshot.getSuccesses());
+        assertEquals("合并执行不计入加锁失败", 0, snapshot.getFailures());
+    }
+}
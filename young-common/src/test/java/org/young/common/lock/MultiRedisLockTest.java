@@ -0,0 +1,73 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+import org.young.common.RedisTestSupport;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.young.common.lock.RedisLockTest.otherThread;
+
+/**
+ * Redis分布式多键锁-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class MultiRedisLockTest extends RedisTestSupport {
+
+    @Test
+    public void testAllOrNothing() throws Exception {
+        final String a = PREFIX + "multi_a", b = PREFIX + "multi_b";
+        final RedisLock single = new RedisLock(redisTemplate, b, 10, 0L);
+        assertTrue(single.lock());
+        assertFalse("任一锁键被占用时全部不加锁", otherThread(() -> new MultiRedisLock(redisTemplate, Arrays.asList(a, b), 10, 0L).lock()));
+        assertFalse(redisTemplate.hasKey(a));
+        single.unlock();
+    }
+
+    @Test
+    public void testNestedSingleLock() throws Exception {
+        final String a = PREFIX + "multi_nested_a", b = PREFIX + "multi_nested_b";
+        final MultiRedisLock multi = new MultiRedisLock(redisTemplate, Arrays.asList(a, b), 10, 0L);
+        assertTrue(multi.lock());
+        //嵌套的单键锁重入多键锁持有的锁键,不等待超时
+        final RedisLock nested = new RedisLock(redisTemplate, a, 10, 5000L);
+        final long start = System.currentTimeMillis();
+        assertTrue(nested.tryLock());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        nested.unlock();
+        assertTrue("内层释放后仍持有锁", redisTemplate.hasKey(a));
+        assertFalse(otherThread(() -> new RedisLock(redisTemplate, a, 10, 0L).lock()));
+        multi.unlock();
+        assertFalse(redisTemplate.hasKey(a));
+        assertFalse(redisTemplate.hasKey(b));
+    }
+
+    @Test
+    public void testNestedMultiLock() throws Exception {
+        final String a = PREFIX + "multi_same_a", b = PREFIX + "multi_same_b";
+        final MultiRedisLock outer = new MultiRedisLock(redisTemplate, Arrays.asList(a, b), 10, 0L);
+        assertTrue(outer.lock());
+        final MultiRedisLock inner = new MultiRedisLock(redisTemplate, Arrays.asList(b, a), 10, 0L);
+        assertTrue("锁键相同的多键锁可重入", inner.lock());
+        inner.unlock();
+        assertTrue(redisTemplate.hasKey(a));
+        outer.unlock();
+        assertFalse(redisTemplate.hasKey(a));
+    }
+
+    @Test
+    public void testPartialOverlapFailsFast() throws Exception {
+        final String a = PREFIX + "multi_partial_a", b = PREFIX + "multi_partial_b";
+        final RedisLock single = new RedisLock(redisTemplate, a, 10, 0L);
+        assertTrue(single.lock());
+        //当前线程只持有部分锁键时直接失败
+        final MultiRedisLock multi = new MultiRedisLock(redisTemplate, Arrays.asList(a, b), 10, 5000L);
+        final long start = System.currentTimeMillis();
+        assertFalse(multi.tryLock());
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        single.unlock();
+        assertFalse(redisTemplate.hasKey(a));
+    }
+}
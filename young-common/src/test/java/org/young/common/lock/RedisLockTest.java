@@ -0,0 +1,184 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.young.common.RedisTestSupport;
+import org.young.common.protocol.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis分布式锁-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisLockTest extends RedisTestSupport {
+
+    @Test
+    public void testMutualExclusion() throws Exception {
+        final String key = PREFIX + "lock_mutex";
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue(lock.lock());
+        try {
+            assertFalse("其他线程不能获得锁", otherThread(() -> new RedisLock(redisTemplate, key, 10, 0L).lock()));
+        }finally {
+            assertTrue(lock.unlock());
+        }
+        assertNull(redisTemplate.opsForValue().get(key));
+        assertTrue("释放后其他线程可获得锁", otherThread(() -> {
+            final RedisLock other = new RedisLock(redisTemplate, key, 10, 0L);
+            final boolean ret = other.lock();
+            other.unlock();
+            return ret;
+        }));
+    }
+
+    @Test
+    public void testReentrant() throws Exception {
+        final String key = PREFIX + "lock_reentrant";
+        final RedisLock outer = new RedisLock(redisTemplate, key, 10, 0L);
+        final RedisLock inner = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue(outer.lock());
+        assertTrue("同一线程可重入", inner.lock());
+        inner.unlock();
+        assertFalse("内层释放后仍持有锁", otherThread(() -> new RedisLock(redisTemplate, key, 10, 0L).lock()));
+        outer.unlock();
+        assertNull(redisTemplate.opsForValue().get(key));
+    }
+
+    @Test
+    public void testWaitForRelease() throws Exception {
+        final String key = PREFIX + "lock_wait";
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue(lock.lock());
+        final CompletableFuture<Boolean> waiter = async(() -> {
+            final RedisLock other = new RedisLock(redisTemplate, key, 10, 5000L);
+            final boolean ret = other.tryLock();
+            other.unlock();
+            return ret;
+        });
+        TimeUnit.MILLISECONDS.sleep(200);
+        lock.unlock();
+        assertTrue("释放后等待者获得锁", waiter.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReleaseChannel() throws Exception {
+        final String key = PREFIX + "lock_channel";
+        final String channel = RedisLockNotifier.CHANNEL_PREFIX + key;
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue(lock.lock());
+        final long[] acquiredAt = new long[1];
+        final CompletableFuture<Boolean> waiter = async(() -> {
+            final RedisLock other = new RedisLock(redisTemplate, key, 10, 10000L);
+            //轮询间隔足够长,只能被释放通知唤醒
+            other.setBackoff(new FixedLockBackoff(5000, 0));
+            final boolean ret = other.tryLock();
+            acquiredAt[0] = System.currentTimeMillis();
+            other.unlock();
+            return ret;
+        });
+        TimeUnit.MILLISECONDS.sleep(500);
+        assertTrue("等待期间订阅锁键频道", subscribed(channel));
+        final long releasedAt = System.currentTimeMillis();
+        lock.unlock();
+        assertTrue(waiter.get(10, TimeUnit.SECONDS));
+        assertTrue("释放通知唤醒等待者", acquiredAt[0] - releasedAt < 1000);
+        assertFalse("没有等待者时退订锁键频道", subscribed(channel));
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        final String key = PREFIX + "lock_expire";
+        assertTrue(otherThread(() -> new RedisLock(redisTemplate, key, 1, 0L).lock()));
+        TimeUnit.MILLISECONDS.sleep(1500);
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue("持有者未释放时锁自然过期", lock.lock());
+        lock.unlock();
+    }
+
+    @Test
+    public void testRenew() throws Exception {
+        //同一哈希槽超过一批的锁及分布在其他哈希槽的锁均被续期
+        final List<RedisLock> locks = new ArrayList<>();
+        for(int i = 0; i < 150; i++){
+            final String lockKey = i < 120 ? PREFIX + "{lock_renew}_" + i : PREFIX + "lock_renew_" + i;
+            final RedisLock lock = new RedisLock(redisTemplate, lockKey, 2, 0L);
+            lock.setRenew(true);
+            assertTrue(lock.lock());
+            locks.add(lock);
+        }
+        TimeUnit.MILLISECONDS.sleep(3500);
+        for(RedisLock lock : locks){
+            assertTrue("持有期间自动续期", redisTemplate.hasKey(lock.getLockKey()));
+            lock.unlock();
+            assertFalse(redisTemplate.hasKey(lock.getLockKey()));
+        }
+    }
+
+    @Test
+    public void testFairOrder() throws Exception {
+        final String key = PREFIX + "lock_fair";
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 0L);
+        assertTrue(lock.lock());
+        //等待者按到达顺序获得锁
+        final List<String> order = Collections.synchronizedList(new ArrayList<>());
+        final CompletableFuture<Boolean> first = async(() -> fair(key, "first", order));
+        TimeUnit.MILLISECONDS.sleep(200);
+        final CompletableFuture<Boolean> second = async(() -> fair(key, "second", order));
+        TimeUnit.MILLISECONDS.sleep(200);
+        lock.unlock();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("first", "second"), order);
+        assertFalse(redisTemplate.hasKey(key + ":queue"));
+    }
+
+    private static boolean fair(final String key, final String name, final List<String> order){
+        final RedisLock lock = new RedisLock(redisTemplate, key, 10, 5000L);
+        lock.setFair(true);
+        if(!lock.tryLock()){
+            return false;
+        }
+        order.add(name);
+        try {
+            TimeUnit.MILLISECONDS.sleep(100);
+        }catch (InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+        lock.unlock();
+        return true;
+    }
+
+    /**
+     * 在新线程中执行(锁的重入以线程区分,不使用线程池)
+     * @param action
+     * 执行内容
+     * @return 执行结果
+     */
+    private static boolean subscribed(final String channel){
+        final Long channels = redisTemplate.execute((RedisCallback<Long>) connection -> connection.eval(
+                "return #redis.call('pubsub','channels',ARGV[1])".getBytes(Constants.CHARSET), ReturnType.INTEGER, 0, channel.getBytes(Constants.CHARSET)));
+        return channels != null && channels > 0;
+    }
+
+    static <T> CompletableFuture<T> async(final Supplier<T> action){
+        return CompletableFuture.supplyAsync(action, r -> new Thread(r).start());
+    }
+
+    static boolean otherThread(final Supplier<Boolean> action) throws Exception {
+        return async(action).get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,118 @@
+package org.young.common.lock;
+
+import org.junit.Test;
+import org.young.common.RedisTestSupport;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.young.common.lock.RedisLockTest.async;
+import static org.young.common.lock.RedisLockTest.otherThread;
+
+/**
+ * Redis分布式读写锁-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisReadWriteLockTest extends RedisTestSupport {
+
+    @Test
+    public void testSharedReaders() throws Exception {
+        final String key = PREFIX + "rw_shared";
+        final DistributedLock read = lock(key, 10).readLock();
+        assertTrue(read.lock());
+        try {
+            assertTrue("读锁之间不互斥", otherThread(() -> {
+                final DistributedLock other = lock(key, 10).readLock();
+                final boolean ret = other.lock();
+                other.unlock();
+                return ret;
+            }));
+            assertFalse("读锁阻塞写锁", otherThread(() -> lock(key, 10).writeLock().lock()));
+        }finally {
+            read.unlock();
+        }
+        assertFalse(redisTemplate.hasKey(key));
+    }
+
+    @Test
+    public void testWriteReentrant() throws Exception {
+        final String key = PREFIX + "rw_reentrant";
+        final DistributedLock write = lock(key, 10).writeLock();
+        assertTrue(write.lock());
+        final DistributedLock nestedWrite = lock(key, 10).writeLock();
+        assertTrue("写锁可重入", nestedWrite.lock());
+        final DistributedLock nestedRead = lock(key, 10).readLock();
+        assertTrue("持有写锁时可获取读锁", nestedRead.lock());
+        nestedRead.unlock();
+        nestedWrite.unlock();
+        assertFalse("内层释放后仍持有写锁", otherThread(() -> lock(key, 10).readLock().lock()));
+        write.unlock();
+        assertFalse(redisTemplate.hasKey(key));
+    }
+
+    @Test
+    public void testWriterPreference() throws Exception {
+        final String key = PREFIX + "rw_writer";
+        final DistributedLock read = lock(key, 10).readLock();
+        assertTrue(read.lock());
+        //写锁等待读锁释放
+        final CountDownLatch waiting = new CountDownLatch(1);
+        final CompletableFuture<Boolean> writer = async(() -> {
+            final DistributedLock write = lock(key, 10, 5000).writeLock();
+            waiting.countDown();
+            final boolean ret = write.tryLock();
+            write.unlock();
+            return ret;
+        });
+        waiting.await();
+        TimeUnit.MILLISECONDS.sleep(200);
+        assertFalse("写锁等待期间新的读者退让", otherThread(() -> lock(key, 10).readLock().lock()));
+        final DistributedLock nestedRead = lock(key, 10).readLock();
+        assertTrue("已持有读锁的线程可重入", nestedRead.lock());
+        nestedRead.unlock();
+        read.unlock();
+        assertTrue("读锁释放后写锁获得锁", writer.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCrashedReaderExpires() throws Exception {
+        final String key = PREFIX + "rw_crashed";
+        //读者获得锁后不释放(模拟宕机)
+        assertTrue(otherThread(() -> lock(key, 1).readLock().lock()));
+        //其他读者不延长宕机读者的有效期
+        final DistributedLock read = lock(key, 10).readLock();
+        assertTrue(read.lock());
+        read.unlock();
+        TimeUnit.MILLISECONDS.sleep(1500);
+        final DistributedLock write = lock(key, 10).writeLock();
+        assertTrue("宕机读者过期后写锁可获得锁", write.lock());
+        write.unlock();
+    }
+
+    @Test
+    public void testHoldCount() throws Exception {
+        final String key = PREFIX + "rw_count";
+        final DistributedLock a = lock(key, 10).readLock(), b = lock(key, 10).readLock();
+        assertTrue(a.lock());
+        assertTrue(b.lock());
+        //mode + 持有者计数 + 持有者过期时间
+        assertEquals(3L, (long) redisTemplate.opsForHash().size(key));
+        b.unlock();
+        assertTrue(redisTemplate.hasKey(key));
+        a.unlock();
+        assertFalse(redisTemplate.hasKey(key));
+    }
+
+    private static RedisReadWriteLock lock(final String key, final int expire){
+        return lock(key, expire, 0);
+    }
+
+    private static RedisReadWriteLock lock(final String key, final int expire, final long timeOut){
+        return new RedisReadWriteLock(redisTemplate, key, expire, timeOut);
+    }
+}
@@ -0,0 +1,83 @@
+package org.young.common.metrics;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 无锁直方图-测试
+ *
+ * @author jeasonyoung
+ */
+public class HistogramTest {
+
+    @Test
+    public void testEmpty(){
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void testSmallValuesExact(){
+        final Histogram histogram = new Histogram();
+        for(long v = 0; v < 8; v++){
+            histogram.record(v);
+        }
+        assertEquals(8, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0));
+        assertEquals(3, histogram.getPercentile(0.5));
+        assertEquals(7, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testNegativeAsZero(){
+        final Histogram histogram = new Histogram();
+        histogram.record(-5);
+        assertEquals(0, histogram.getPercentile(1));
+        assertEquals(0, histogram.snapshot().getMax());
+    }
+
+    @Test
+    public void testBucketUpperBound(){
+        final Histogram histogram = new Histogram();
+        histogram.record(1000);
+        histogram.record(2000);
+        //1000 所在桶为 [960, 1023]
+        assertEquals(1023, histogram.getPercentile(0.5));
+        //不超过最大值
+        assertEquals(2000, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testRelativeError(){
+        final Histogram histogram = new Histogram();
+        final Random random = new Random(42);
+        final long[] values = new long[10000];
+        for(int i = 0; i < values.length; i++){
+            values[i] = (long) Math.abs(random.nextGaussian() * 1_000_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for(double q : new double[]{ 0.5, 0.9, 0.99, 0.999 }){
+            final long exact = values[(int) Math.ceil(q * values.length) - 1];
+            final long estimate = histogram.getPercentile(q);
+            assertTrue(q + ": " + estimate + " < " + exact, estimate >= exact);
+            assertTrue(q + ": " + estimate + " > " + exact, estimate <= exact + exact / 8 + 1);
+        }
+        final Histogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.getCount());
+        assertEquals(values[values.length - 1], snapshot.getMax());
+    }
+
+    @Test
+    public void testLargeValues(){
+        final Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+    }
+}
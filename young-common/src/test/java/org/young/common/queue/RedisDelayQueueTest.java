@@ -0,0 +1,63 @@
+package org.young.common.queue;
+
+import org.junit.Test;
+import org.young.common.RedisTestSupport;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis延迟队列-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisDelayQueueTest extends RedisTestSupport {
+
+    @Test
+    public void testDelayQueue() throws Exception {
+        final RedisDelayQueue<Job> queue = new RedisDelayQueue<>(redisTemplate, PREFIX + "delay", Job.class);
+        final List<String> handled = new ArrayList<>();
+        queue.schedule(new Job("now"), 0, TimeUnit.MILLISECONDS);
+        queue.schedule(new Job("later"), 500, TimeUnit.MILLISECONDS);
+        final String canceled = queue.schedule(new Job("canceled"), 0, TimeUnit.MILLISECONDS);
+        assertTrue(queue.cancel(canceled));
+        assertFalse(queue.cancel(canceled));
+
+        final long sleep = queue.poll((id, job) -> handled.add(job.getName()));
+        assertEquals(1, handled.size());
+        assertEquals("now", handled.get(0));
+        assertTrue("下一个任务约500毫秒后到期", sleep > 0 && sleep <= 500);
+
+        TimeUnit.MILLISECONDS.sleep(600);
+        queue.poll((id, job) -> handled.add(job.getName()));
+        assertEquals(2, handled.size());
+        assertEquals("later", handled.get(1));
+    }
+
+    public static class Job implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+
+        public Job(){
+
+        }
+
+        Job(final String name){
+            this.name = name;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        public void setName(final String name){
+            this.name = name;
+        }
+    }
+}
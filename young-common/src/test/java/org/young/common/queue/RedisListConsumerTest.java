@@ -0,0 +1,93 @@
+package org.young.common.queue;
+
+import com.alibaba.fastjson.JSON;
+import org.junit.Test;
+import org.young.common.RedisTestSupport;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Redis列表队列批量消费者-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisListConsumerTest extends RedisTestSupport {
+
+    @Test
+    public void testDrain() {
+        final String key = PREFIX + "list_drain";
+        push(key, 50);
+        final List<String> handled = Collections.synchronizedList(new ArrayList<>());
+        try(RedisListConsumer<Item> consumer = new RedisListConsumer<>(redisTemplate, key, Item.class,
+                (index, totals, data) -> handled.add(data.getName()), 4, 8)){
+            assertEquals(50, consumer.drain());
+        }
+        assertEquals(50, handled.size());
+        assertEquals(0L, (long) redisTemplate.opsForList().size(key));
+    }
+
+    @Test
+    public void testCloseDuringDrain() throws Exception {
+        final String key = PREFIX + "list_close";
+        push(key, 40);
+        final RedisListConsumer<Item> consumer = new RedisListConsumer<>(redisTemplate, key, Item.class, (index, totals, data) -> {
+            try {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }catch (InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+        }, 1, 10);
+        final CompletableFuture<Long> drain = CompletableFuture.supplyAsync(consumer::drain);
+        TimeUnit.MILLISECONDS.sleep(100);
+        consumer.close();
+        //关闭后消费结束且未处理的元素放回列表
+        final long processed = drain.get(10, TimeUnit.SECONDS);
+        final List<Object> rest = redisTemplate.opsForList().range(key, 0, -1);
+        assertFalse("关闭时仍有未处理的元素", rest.isEmpty());
+        assertEquals(40, processed + rest.size());
+        for(int i = 0; i < rest.size(); i++){
+            assertEquals("item-" + (processed + i), JSON.parseObject((String) rest.get(i), Item.class).getName());
+        }
+
+        //关闭后不再弹出元素
+        assertEquals(0, consumer.drain());
+        assertEquals(rest.size(), (long) redisTemplate.opsForList().size(key));
+    }
+
+    private static void push(final String key, final int count){
+        final List<Object> items = new ArrayList<>(count);
+        for(int i = 0; i < count; i++){
+            items.add(JSON.toJSONString(new Item("item-" + i)));
+        }
+        redisTemplate.opsForList().rightPushAll(key, items);
+    }
+
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+
+        public Item(){
+
+        }
+
+        Item(final String name){
+            this.name = name;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        public void setName(final String name){
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package org.young.common.queue;
+
+import org.junit.Test;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.young.common.RedisTestSupport;
+import org.young.common.config.FastJsonRedisTemplate;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis Streams工作队列-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisStreamQueueTest extends RedisTestSupport {
+
+    @Test
+    public void testStreamQueue() throws Exception {
+        final RedisStreamQueue<Job> queue = new RedisStreamQueue<>(redisTemplate, PREFIX + "stream", "group", Job.class);
+        queue.setMinIdle(0);
+        queue.setMaxDeliveries(1);
+        queue.createGroup();
+        queue.createGroup();
+        queue.add(new Job("ok"));
+        queue.add(new Job("poison"));
+
+        //处理失败的消息留在待确认列表中
+        final List<String> handled = new ArrayList<>();
+        assertEquals(2, queue.poll("c1", (id, job) -> {
+            if("poison".equals(job.getName())){
+                throw new IllegalStateException("poison");
+            }
+            handled.add(job.getName());
+        }));
+        assertEquals(1, handled.size());
+
+        //其他消费者接管空闲消息,超过最大投递次数后转入死信流
+        final PoisonHandler poison = new PoisonHandler();
+        assertEquals(1, queue.reclaim("c2", poison));
+        assertEquals(0, queue.reclaim("c2", poison));
+        assertEquals(1L, xlen(PREFIX + "stream:dead"));
+
+        //没有待确认消息的消费者被删除
+        assertEquals(2, queue.prune(0));
+    }
+
+    @Test
+    public void testBlockingRead() throws Exception {
+        //阻塞读取使用不共享本地连接的连接工厂
+        final LettuceConnectionFactory factory = new LettuceConnectionFactory(System.getProperty("redis.host", "localhost"),
+                Integer.getInteger("redis.port", 6379));
+        factory.setShareNativeConnection(false);
+        factory.afterPropertiesSet();
+        try {
+            final RedisTemplate<Object, Object> template = new FastJsonRedisTemplate();
+            template.setConnectionFactory(factory);
+            template.afterPropertiesSet();
+            final RedisStreamQueue<Job> queue = new RedisStreamQueue<>(template, PREFIX + "stream_block", "group", Job.class);
+            queue.setBlock(500);
+            queue.createGroup();
+
+            //无消息时阻塞至超时
+            final List<String> handled = new ArrayList<>();
+            long start = System.currentTimeMillis();
+            assertEquals(0, queue.poll("c1", (id, job) -> handled.add(job.getName())));
+            assertTrue("阻塞约500毫秒", System.currentTimeMillis() - start >= 400);
+
+            //阻塞期间写入的消息立即返回
+            final CompletableFuture<Integer> reader = CompletableFuture.supplyAsync(() -> queue.poll("c1", (id, job) -> handled.add(job.getName())));
+            TimeUnit.MILLISECONDS.sleep(100);
+            start = System.currentTimeMillis();
+            queue.add(new Job("wakeup"));
+            assertEquals(1, (int) reader.get(5, TimeUnit.SECONDS));
+            assertTrue(System.currentTimeMillis() - start < 400);
+            assertEquals("wakeup", handled.get(0));
+        }finally {
+            factory.destroy();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testBlockingRequiresDedicatedConnection(){
+        final RedisStreamQueue<Job> queue = new RedisStreamQueue<>(redisTemplate, PREFIX + "stream_shared", "group", Job.class);
+        queue.setBlock(500);
+        queue.start(1, (id, job) -> { });
+    }
+
+    /**
+     * 流的长度(Lettuce 5.0 不支持直接发送 XLEN)
+     * @param key
+     * 流键
+     * @return 消息数量
+     */
+    private static long xlen(final String key){
+        final Long len = redisTemplate.execute(connection -> connection.eval("return redis.call('xlen', KEYS[1])".getBytes(),
+                ReturnType.INTEGER, 1, key.getBytes()), true);
+        return len == null ? 0 : len;
+    }
+
+    /**
+     * 始终失败的消息处理器
+     */
+    private static class PoisonHandler implements RedisStreamQueue.StreamHandler<Job> {
+        @Override
+        public void hander(final String id, final Job data){
+            throw new IllegalStateException("poison");
+        }
+    }
+
+    public static class Job implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private String name;
+
+        public Job(){
+
+        }
+
+        Job(final String name){
+            this.name = name;
+        }
+
+        public String getName(){
+            return name;
+        }
+
+        public void setName(final String name){
+            this.name = name;
+        }
+    }
+}
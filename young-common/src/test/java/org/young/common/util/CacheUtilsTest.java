@@ -0,0 +1,45 @@
+package org.young.common.util;
+
+import com.google.common.cache.Cache;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * 缓存工具-测试
+ *
+ * @author jeasonyoung
+ */
+public class CacheUtilsTest {
+
+    @Test
+    public void testMissingOnNull() {
+        final Cache<String, String> cache = CacheUtils.createCache();
+        final Cache<String, Boolean> missing = CacheUtils.createCache(100, 1, TimeUnit.MINUTES);
+        final AtomicInteger loads = new AtomicInteger();
+        assertNull(CacheUtils.getCacheValue(cache, missing, "k", () -> {
+            loads.incrementAndGet();
+            return null;
+        }));
+        assertNull(CacheUtils.getCacheValue(cache, missing, "k", () -> {
+            loads.incrementAndGet();
+            return "v";
+        }));
+        assertEquals("缺失有效期内不再加载", 1, loads.get());
+    }
+
+    @Test
+    public void testNoMissingOnFailure() {
+        final Cache<String, String> cache = CacheUtils.createCache();
+        final Cache<String, Boolean> missing = CacheUtils.createCache(100, 1, TimeUnit.MINUTES);
+        assertNull(CacheUtils.getCacheValue(cache, missing, "k", () -> {
+            throw new IllegalStateException("timeout");
+        }));
+        assertNull("加载失败不记录缺失", missing.getIfPresent("k"));
+        assertEquals("下次访问重新加载", "v", CacheUtils.getCacheValue(cache, missing, "k", () -> "v"));
+    }
+}
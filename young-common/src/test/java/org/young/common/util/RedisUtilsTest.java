@@ -0,0 +1,63 @@
+package org.young.common.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.junit.Test;
+import org.young.common.RedisTestSupport;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Redis工具-集成测试
+ *
+ * @author jeasonyoung
+ */
+public class RedisUtilsTest extends RedisTestSupport {
+    private static final String ITEM_PREFIX = PREFIX + "item";
+
+    @Test
+    public void testClearBatch() {
+        final String key1 = RedisUtils.batchCacheKey(ITEM_PREFIX, ":", 1L);
+        final String key2 = RedisUtils.batchCacheKey(ITEM_PREFIX, ":", 2L);
+        assertEquals(ITEM_PREFIX + ":1", key1);
+        RedisUtils.writeRedisCacheBatch(redisTemplate, Collections.singletonMap(key1, new Item(1L, "a")), 60);
+        RedisUtils.writeRedisCacheNulls(redisTemplate, Collections.singletonList(key2), 60);
+        RedisUtils.clearRedisCacheBatch(redisTemplate, ITEM_PREFIX, ":", Arrays.asList(1L, 2L));
+        final Set<String> nulls = new HashSet<>();
+        assertTrue("数据被清除", RedisUtils.readRedisCacheBatch(redisTemplate, Arrays.asList(key1, key2), Item.class, nulls).isEmpty());
+        assertTrue("null标记被清除", nulls.isEmpty());
+    }
+
+    @Test
+    public void testWriteBatchByIds() {
+        final String key = RedisUtils.batchCacheKey(ITEM_PREFIX, "-", 3L);
+        RedisUtils.writeRedisCacheNulls(redisTemplate, Collections.singletonList(key), 60);
+        final Map<Long, Item> data = new LinkedHashMap<>();
+        data.put(3L, new Item(3L, "c"));
+        RedisUtils.writeRedisCacheBatch(redisTemplate, ITEM_PREFIX, "-", data, 60);
+        final Set<String> nulls = new HashSet<>();
+        final Map<String, Item> cached = RedisUtils.readRedisCacheBatch(redisTemplate, Collections.singletonList(key), Item.class, nulls);
+        assertFalse("null标记被覆盖", nulls.contains(key));
+        assertEquals("c", cached.get(key).getName());
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private Long id;
+        private String name;
+    }
+}